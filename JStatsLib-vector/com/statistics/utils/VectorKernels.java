@@ -0,0 +1,128 @@
+package com.statistics.utils;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <summary>
+ * SIMD implementation of the kernels using the incubating Vector API. Each loop processes
+ * as many doubles per instruction as the CPU's preferred vector width allows
+ * (4 with AVX2, 8 with AVX-512). The sum and moment kernels reduce their partial sums per block
+ * and combine them with compensated sums, so results are as accurate as the scalar implementation.
+ * The Gaussian kernel sum adds positive terms of at most 1, so like ScalarKernels it accumulates them directly.
+ * </summary>
+ *
+ * This class lives outside the main source folder because it needs the jdk.incubator.vector module.
+ * Compile it into the same output as the library and run with the module enabled:
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -cp JStatsLib -d JStatsLib/bin JStatsLib-vector/com/statistics/utils/VectorKernels.java
+ * java --add-modules jdk.incubator.vector ...
+ * </pre>
+ * Kernels loads it reflectively and falls back to ScalarKernels when either step is missing.
+ */
+final class VectorKernels implements DoubleKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final int BLOCK_SIZE = ScalarKernels.BLOCK_SIZE;
+
+    VectorKernels() {
+    }
+
+    @Override
+    public double sum(double[] values, int from, int to) {
+        CompensatedSum total = new CompensatedSum();
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int end = Math.min(to, start + BLOCK_SIZE);
+            // Two accumulators hide the latency of the vector add
+            DoubleVector acc0 = DoubleVector.zero(SPECIES);
+            DoubleVector acc1 = DoubleVector.zero(SPECIES);
+            int i = start;
+            for (; i + 2 * LANES <= end; i += 2 * LANES) {
+                acc0 = acc0.add(DoubleVector.fromArray(SPECIES, values, i));
+                acc1 = acc1.add(DoubleVector.fromArray(SPECIES, values, i + LANES));
+            }
+            for (; i + LANES <= end; i += LANES) {
+                acc0 = acc0.add(DoubleVector.fromArray(SPECIES, values, i));
+            }
+            double sum = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+            for (; i < end; i++) {
+                sum += values[i];
+            }
+            total.add(sum);
+        }
+        return total.getSum();
+    }
+
+    @Override
+    public void centralMoments(double[] values, int from, int to, double center, double[] out) {
+        CompensatedSum m2 = new CompensatedSum();
+        CompensatedSum m3 = new CompensatedSum();
+        CompensatedSum m4 = new CompensatedSum();
+        DoubleVector centers = DoubleVector.broadcast(SPECIES, center);
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int end = Math.min(to, start + BLOCK_SIZE);
+            // Min and max vectors carried across blocks were about 3x slower than per-block ones
+            DoubleVector mins = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+            DoubleVector maxs = DoubleVector.broadcast(SPECIES, Double.NEGATIVE_INFINITY);
+            DoubleVector s2 = DoubleVector.zero(SPECIES);
+            DoubleVector s3 = DoubleVector.zero(SPECIES);
+            DoubleVector s4 = DoubleVector.zero(SPECIES);
+            int i = start;
+            for (; i + LANES <= end; i += LANES) {
+                DoubleVector v = DoubleVector.fromArray(SPECIES, values, i);
+                DoubleVector d = v.sub(centers);
+                DoubleVector d2 = d.mul(d);
+                s2 = s2.add(d2);
+                s3 = s3.add(d2.mul(d));
+                s4 = s4.add(d2.mul(d2));
+                mins = mins.min(v);
+                maxs = maxs.max(v);
+            }
+            double t2 = s2.reduceLanes(VectorOperators.ADD);
+            double t3 = s3.reduceLanes(VectorOperators.ADD);
+            double t4 = s4.reduceLanes(VectorOperators.ADD);
+            min = Math.min(min, mins.reduceLanes(VectorOperators.MIN));
+            max = Math.max(max, maxs.reduceLanes(VectorOperators.MAX));
+            for (; i < end; i++) {
+                double value = values[i];
+                double d = value - center;
+                double d2 = d * d;
+                t2 += d2;
+                t3 += d2 * d;
+                t4 += d2 * d2;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            m2.add(t2);
+            m3.add(t3);
+            m4.add(t4);
+        }
+        out[0] = m2.getSum();
+        out[1] = m3.getSum();
+        out[2] = m4.getSum();
+        out[3] = min;
+        out[4] = max;
+    }
+
+    @Override
+    public double gaussianKernelSum(double[] values, int from, int to, double x, double bandwidth) {
+        double scale = 1 / bandwidth;
+        DoubleVector xs = DoubleVector.broadcast(SPECIES, x);
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            DoubleVector z = xs.sub(DoubleVector.fromArray(SPECIES, values, i)).mul(scale);
+            acc = acc.add(z.mul(z).mul(-0.5).lanewise(VectorOperators.EXP));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            double z = (x - values[i]) * scale;
+            sum += Math.exp(-0.5 * z * z);
+        }
+        return sum;
+    }
+}
@@ -2,9 +2,21 @@ package com.statistics;
 import com.statistics.utils.FileHandler;
 import com.statistics.analysis.BasicStats;
 import com.statistics.analysis.AdvancedStats;
+import com.statistics.analysis.SketchStats;
+import com.statistics.analysis.Summary;
+import com.statistics.utils.BinaryDataset;
+import com.statistics.utils.DataStore;
+import com.statistics.utils.DoubleArray;
+import com.statistics.utils.FrequencyTable;
 import com.statistics.utils.RBTree;
+import com.statistics.utils.SortedColumn;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 /**
  * <summary>
@@ -12,10 +24,30 @@ import java.util.HashMap;
  * </summary>
  */
  
-public class JStatsLib {
-    private RBTree tree;
+public class JStatsLib implements AutoCloseable {
+    /**
+     * How a dataset is held in memory.
+     * EXACT keeps every value, so all statistics are exact.
+     * APPROXIMATE keeps only running moments and a t-digest of about 32 KB, so the mean, variance,
+     * minimum and maximum stay exact while the median, quartiles and quantiles are estimated.
+     * The mode is estimated from a fixed set of frequency counters.
+     * Statistics that need every value (moving averages, conversions) are not available.
+     */
+    public enum Precision {
+        EXACT,
+        APPROXIMATE
+    }
+    
+    private DataStore tree;
+    // The imported values in arrival order, used by the moving averages
+    private DoubleArray sequence;
     private BasicStats basicStats;
     private AdvancedStats advancedStats;
+    private BinaryDataset binary;
+    private Summary headerSummary;
+    // Replaces the store in approximate mode
+    private SketchStats sketch;
+    private int parallelism = 1;
     
     /**
      * Constructs a new JStatsLib instance and loads data from the specified path.
@@ -25,15 +57,277 @@ public class JStatsLib {
      * @throws IllegalArgumentException if the file cannot be read or is empty
      */
     public JStatsLib(String path, String delimiter) {
-        tree = new RBTree();
+        this(path, delimiter, new RBTree());
+    }
+    
+    /**
+     * Constructs a new JStatsLib instance backed by the given data store and loads data from the specified path.
+     * Use a {@link com.statistics.utils.SortedColumn} for large datasets to store values as primitive doubles.
+     * 
+     * @param path The file path to load data from
+     * @param delimiter The delimiter used in the file
+     * @param store The empty data store to load the values into
+     * @throws IllegalArgumentException if the file cannot be read or is empty
+     */
+    public JStatsLib(String path, String delimiter, DataStore store) {
+        this(path, delimiter, store, 1);
+    }
+    
+    /**
+     * Constructs a new JStatsLib instance and loads data from the specified path using several threads.
+     * 
+     * @param path The file path to load data from
+     * @param delimiter The delimiter used in the file
+     * @param parallelism The number of threads used to parse the file
+     * @throws IllegalArgumentException if the file cannot be read or is empty
+     */
+    public JStatsLib(String path, String delimiter, int parallelism) {
+        this(path, delimiter, new RBTree(), parallelism);
+    }
+    
+    /**
+     * Constructs a new JStatsLib instance backed by the given data store and loads data
+     * from the specified path using several threads.
+     * 
+     * @param path The file path to load data from
+     * @param delimiter The delimiter used in the file
+     * @param store The empty data store to load the values into
+     * @param parallelism The number of threads used to parse the file
+     * @throws IllegalArgumentException if the file cannot be read or is empty
+     */
+    public JStatsLib(String path, String delimiter, DataStore store, int parallelism) {
+        if (store == null) {
+            throw new IllegalArgumentException("Data store cannot be null");
+        }
+        tree = store;
+        sequence = new DoubleArray();
+        setParallelism(parallelism);
         importData(path, delimiter);
-        
-        if (tree.getSize() == 0) {
+        initialize();
+    }
+    
+    /**
+     * Constructs a new JStatsLib instance and loads data from the specified path with the given precision.
+     * In approximate mode the values are streamed into a sketch and not kept, so memory stays
+     * at a few tens of KB regardless of the size of the file.
+     * 
+     * @param path The file path to load data from
+     * @param delimiter The delimiter used in the file
+     * @param precision Whether to keep every value or only a sketch
+     * @throws IllegalArgumentException if the file cannot be read or is empty
+     */
+    public JStatsLib(String path, String delimiter, Precision precision) {
+        setPrecision(precision);
+        importData(path, delimiter);
+        initialize();
+    }
+    
+    /**
+     * Constructs a new JStatsLib instance and loads data from a channel with the given precision.
+     * The channel is parsed incrementally and read until it ends, but it is not closed.
+     * 
+     * @param channel The channel to load data from
+     * @param delimiter The delimiter used in the data
+     * @param precision Whether to keep every value or only a sketch
+     * @throws IllegalArgumentException if the channel is null or contains no data
+     */
+    public JStatsLib(ReadableByteChannel channel, String delimiter, Precision precision) {
+        setPrecision(precision);
+        importData(channel, delimiter);
+        initialize();
+    }
+    
+    /**
+     * Constructs a new JStatsLib instance and loads data from an input stream such as System.in.
+     * The stream is parsed incrementally and read until it ends, but it is not closed.
+     * 
+     * @param in The stream to load data from
+     * @param delimiter The delimiter used in the data
+     * @throws IllegalArgumentException if the stream is null or contains no data
+     */
+    public JStatsLib(InputStream in, String delimiter) {
+        this(toChannel(in), delimiter, new RBTree());
+    }
+    
+    /**
+     * Constructs a new JStatsLib instance and loads data from a channel such as a socket or pipe.
+     * The channel is parsed incrementally and read until it ends, but it is not closed.
+     * 
+     * @param channel The channel to load data from
+     * @param delimiter The delimiter used in the data
+     * @throws IllegalArgumentException if the channel is null or contains no data
+     */
+    public JStatsLib(ReadableByteChannel channel, String delimiter) {
+        this(channel, delimiter, new RBTree());
+    }
+    
+    /**
+     * Constructs a new JStatsLib instance backed by the given data store and loads data from a channel.
+     * The channel is parsed incrementally and read until it ends, but it is not closed.
+     * 
+     * @param channel The channel to load data from
+     * @param delimiter The delimiter used in the data
+     * @param store The empty data store to load the values into
+     * @throws IllegalArgumentException if the channel is null or contains no data
+     */
+    public JStatsLib(ReadableByteChannel channel, String delimiter, DataStore store) {
+        if (store == null) {
+            throw new IllegalArgumentException("Data store cannot be null");
+        }
+        tree = store;
+        sequence = new DoubleArray();
+        importData(channel, delimiter);
+        initialize();
+    }
+    
+    /**
+     * Constructs a JStatsLib instance on top of an opened binary dataset
+     * 
+     * @param dataset The memory-mapped dataset
+     */
+    private JStatsLib(BinaryDataset dataset) {
+        tree = dataset;
+        binary = dataset;
+        initialize();
+    }
+    
+    /**
+     * Opens a dataset saved with {@link #saveBinary(String, boolean)}.
+     * The file is memory-mapped: summary statistics are answered from its header,
+     * and values are only read from disk when a calculation needs them.
+     * The file keeps values in sorted order only, so moving averages run over the sorted values.
+     * 
+     * @param path The binary dataset file
+     * @return A JStatsLib instance backed by the file
+     * @throws IllegalArgumentException if the file cannot be opened or is empty
+     */
+    public static JStatsLib openBinary(String path) {
+        if (path == null || path.trim().isEmpty()) {
+            throw new IllegalArgumentException("File path cannot be null or empty");
+        }
+        try {
+            return new JStatsLib(BinaryDataset.open(path));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not open binary dataset: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Saves the dataset in the compact binary format, which can be reopened instantly with {@link #openBinary(String)}
+     * 
+     * @param path The file to write
+     * @param runLengthEncoded true to store each distinct value once with its count, which is smaller for repetitive data
+     * @throws IllegalStateException if the file cannot be written
+     */
+    public void saveBinary(String path, boolean runLengthEncoded) {
+        if (path == null || path.trim().isEmpty()) {
+            throw new IllegalArgumentException("File path cannot be null or empty");
+        }
+        try {
+            BinaryDataset.write(store(), path, runLengthEncoded);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not save binary dataset: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Creates the empty storage for the given precision
+     * 
+     * @param precision The precision chosen by the caller
+     * @throws IllegalArgumentException if precision is null
+     */
+    private void setPrecision(Precision precision) {
+        if (precision == null) {
+            throw new IllegalArgumentException("Precision cannot be null");
+        }
+        if (precision == Precision.APPROXIMATE) {
+            sketch = new SketchStats();
+        } else {
+            tree = new RBTree();
+            sequence = new DoubleArray();
+        }
+    }
+    
+    /**
+     * Returns whether the dataset keeps every value or only a sketch
+     * 
+     * @return The precision of the dataset
+     */
+    public Precision getPrecision() {
+        return sketch != null ? Precision.APPROXIMATE : Precision.EXACT;
+    }
+    
+    /**
+     * Checks that data was imported
+     * 
+     * @throws IllegalArgumentException if no data was imported
+     */
+    private void initialize() {
+        if (size() == 0) {
             throw new IllegalArgumentException("No data was imported. Please check your file path and format.");
         }
-        
-        basicStats = new BasicStats(tree);
-        advancedStats = new AdvancedStats(tree);
+    }
+    
+    /**
+     * Returns the basic statistics, creating them on first use
+     * 
+     * @return The BasicStats for this dataset
+     */
+    private BasicStats basicStats() {
+        store();
+        if (basicStats == null) {
+            basicStats = new BasicStats(tree, sequence);
+            basicStats.setParallelism(parallelism);
+        }
+        return basicStats;
+    }
+    
+    /**
+     * Returns the advanced statistics, creating them on first use on top of the shared BasicStats
+     * 
+     * @return The AdvancedStats for this dataset
+     */
+    private AdvancedStats advancedStats() {
+        if (advancedStats == null) {
+            // Without values only the distribution functions, which take their parameters explicitly, are reachable
+            advancedStats = new AdvancedStats(sketch != null ? new BasicStats(new SortedColumn(0)) : basicStats());
+        }
+        return advancedStats;
+    }
+    
+    /**
+     * Returns the data store, which only exists in exact mode
+     * 
+     * @return The store holding every value
+     * @throws IllegalStateException if the dataset was opened in approximate mode
+     */
+    private DataStore store() {
+        if (tree == null) {
+            throw new IllegalStateException("Not available in approximate mode, which does not keep the values");
+        }
+        return tree;
+    }
+    
+    /**
+     * Returns the binary dataset whose header still describes the data, if any
+     * 
+     * @return The opened binary dataset, or null if there is none or it has been modified
+     */
+    private BinaryDataset header() {
+        return binary != null && !binary.isModified() ? binary : null;
+    }
+    
+    // Whether the moments can be read from the running moments, which cost O(1) after an add,
+    // instead of from a summary that also looks up the quartiles
+    private boolean hasRunningMoments() {
+        return sketch == null && header() == null;
+    }
+    
+    private static ReadableByteChannel toChannel(InputStream in) {
+        if (in == null) {
+            throw new IllegalArgumentException("Input stream cannot be null");
+        }
+        return Channels.newChannel(in);
     }
     
     /**
@@ -48,10 +342,121 @@ public class JStatsLib {
             throw new IllegalArgumentException("File path cannot be null or empty");
         }
         
+        if (sketch != null) {
+            FileHandler fileHandler = new FileHandler(path, delimiter, sketch);
+            fileHandler.setParallelism(parallelism);
+            fileHandler.readFile();
+            return;
+        }
         FileHandler fileHandler = new FileHandler(path, delimiter, tree);
+        fileHandler.setBulkLoad(true);
+        fileHandler.setParallelism(parallelism);
+        fileHandler.setSequence(sequence);
+        fileHandler.readFile();
+    }
+    
+    /**
+     * Import data from an input stream. The stream is read until it ends but is not closed.
+     * 
+     * @param in The stream to read from
+     * @param delimiter The delimiter used in the data
+     * @throws IllegalArgumentException if the stream is null
+     */
+    public void importData(InputStream in, String delimiter) {
+        importData(toChannel(in), delimiter);
+    }
+    
+    /**
+     * Import data from a channel. The channel is read until it ends but is not closed.
+     * 
+     * @param channel The channel to read from
+     * @param delimiter The delimiter used in the data
+     * @throws IllegalArgumentException if the channel is null
+     */
+    public void importData(ReadableByteChannel channel, String delimiter) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel cannot be null");
+        }
+        
+        if (sketch != null) {
+            new FileHandler(channel, delimiter, sketch).readFile();
+            return;
+        }
+        FileHandler fileHandler = new FileHandler(channel, delimiter, tree);
+        fileHandler.setBulkLoad(true);
+        fileHandler.setSequence(sequence);
         fileHandler.readFile();
     }
     
+    /**
+     * Adds a single value to the dataset. The mean and variance are updated in O(1)
+     * and the ordered data is kept current, so no statistics need to be rebuilt.
+     * 
+     * @param value The value to add
+     */
+    public void add(double value) {
+        if (sketch != null) {
+            sketch.add(value);
+            return;
+        }
+        basicStats().add(value);
+    }
+    
+    /**
+     * Adds a batch of values to the dataset, in the order they arrived
+     * 
+     * @param values The values to add
+     * @throws IllegalArgumentException if values is null
+     */
+    public void addAll(double[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("Values cannot be null");
+        }
+        if (sketch != null) {
+            sketch.addAll(values);
+            return;
+        }
+        basicStats().addAll(values);
+    }
+    
+    /**
+     * Sets the number of threads used when importing data and computing statistics.
+     * Large datasets are split into chunks whose partial moments are computed in parallel and merged,
+     * on a pool of that many threads that is kept until the setting changes or {@link #close()} is called.
+     * 
+     * @param parallelism The number of threads, 1 to read on the calling thread only
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        if (basicStats != null) {
+            basicStats.setParallelism(parallelism);
+        }
+    }
+    
+    /**
+     * Returns the number of threads used when importing data and computing statistics
+     * 
+     * @return The parallelism setting
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    /**
+     * Shuts down the threads kept for computing statistics in parallel.
+     * The dataset stays usable; a later parallel calculation starts new threads.
+     */
+    @Override
+    public void close() {
+        if (basicStats != null) {
+            basicStats.close();
+        }
+    }
+    
     /**
      * Checks if the data size is sufficient for statistical calculations
      * 
@@ -59,11 +464,37 @@ public class JStatsLib {
      * @throws IllegalStateException if the data size is insufficient
      */
     private void checkDataSize(int minSize) {
-        if (tree.getSize() < minSize) {
+        if (size() < minSize) {
             throw new IllegalStateException("Insufficient data points. At least " + minSize + " values required.");
         }
     }
     
+    /**
+     * Returns the descriptive statistics of the dataset, computed together in one pass and cached
+     * until the data changes. Prefer this over separate calls when several statistics are needed.
+     * For an unmodified binary dataset the summary is read from the file header.
+     * 
+     * @return The summary of the dataset
+     * @throws IllegalStateException if there is no data
+     */
+    public Summary summary() {
+        checkDataSize(1);
+        if (sketch != null) {
+            return sketch.summary();
+        }
+        BinaryDataset header = header();
+        if (header == null) {
+            return basicStats().summary();
+        }
+        if (headerSummary == null) {
+            double[] quartiles = header.getQuarterPercentiles();
+            headerSummary = new Summary(header.getCount(), header.getSum(), header.getMean(),
+                    header.getSumOfSquaredDeviations(), header.getSumOfCubedDeviations(), header.getSumOfFourthPowerDeviations(),
+                    header.getMin(), header.getMax(), quartiles[0], header.getMedian(), quartiles[1]);
+        }
+        return headerSummary;
+    }
+    
     /**
      * Calculates the arithmetic mean of the dataset
      * 
@@ -72,18 +503,53 @@ public class JStatsLib {
      */
     public double mean() {
         checkDataSize(1);
-        return basicStats.mean();
+        return hasRunningMoments() ? basicStats().mean() : summary().getMean();
     }
     
     /**
-     * Finds the mode (most frequent value) in the dataset
+     * Finds the mode (most frequent value) in the dataset.
+     * In approximate mode it is estimated by a Space-Saving summary of 256 counters.
      * 
      * @return The mode or null if no unique mode exists
      * @throws IllegalStateException if there is no data
      */
     public Double mode() {
         checkDataSize(1);
-        return basicStats.mode();
+        if (sketch != null) {
+            return sketch.mode();
+        }
+        return basicStats().mode();
+    }
+    
+    /**
+     * Finds the most frequent values without building a full frequency map.
+     * In approximate mode the counts are estimates that may exceed the true counts
+     * by at most 1 / 256 of the data.
+     * 
+     * @param k The number of values to return
+     * @return Up to k values mapped to their counts, from the most to the least frequent
+     * @throws IllegalStateException if there is no data
+     */
+    public LinkedHashMap<Double, Long> topFrequencies(int k) {
+        checkDataSize(1);
+        if (sketch != null) {
+            return sketch.topFrequencies(k);
+        }
+        return basicStats().topFrequencies(k);
+    }
+    
+    /**
+     * Counts the distinct values in the dataset, without building a frequency map.
+     * In approximate mode it is estimated by a HyperLogLog of 16 KB: counts up to 1024
+     * are exact and larger ones have a standard error of 0.8%.
+     * 
+     * @return The number of distinct values, 0 if there is no data
+     */
+    public long distinctCount() {
+        if (sketch != null) {
+            return sketch.distinctCount();
+        }
+        return store().getDistinctCount();
     }
     
     /**
@@ -93,8 +559,7 @@ public class JStatsLib {
      * @throws IllegalStateException if there is no data
      */
     public double median() {
-        checkDataSize(1);
-        return basicStats.median();
+        return summary().getMedian();
     }
     
     /**
@@ -105,7 +570,7 @@ public class JStatsLib {
      */
     public double stddev() {
         checkDataSize(2);
-        double result = basicStats.stddev();
+        double result = hasRunningMoments() ? basicStats().stddev() : summary().getStddev();
         if (Double.isNaN(result) || result < 0) {
             throw new IllegalStateException("Standard deviation calculation resulted in an invalid value: " + result);
         }
@@ -120,7 +585,7 @@ public class JStatsLib {
      */
     public double variance() {
         checkDataSize(2);
-        double result = basicStats.variance();
+        double result = hasRunningMoments() ? basicStats().variance() : summary().getVariance();
         if (Double.isNaN(result) || result < 0) {
             throw new IllegalStateException("Variance calculation resulted in an invalid value: " + result);
         }
@@ -135,7 +600,7 @@ public class JStatsLib {
      */
     public double range() {
         checkDataSize(1);
-        return basicStats.range();
+        return hasRunningMoments() ? basicStats().range() : summary().getRange();
     }
     
     /**
@@ -146,7 +611,7 @@ public class JStatsLib {
      */
     public double min() {
         checkDataSize(1);
-        return basicStats.min();
+        return hasRunningMoments() ? basicStats().min() : summary().getMin();
     }
     
     /**
@@ -157,7 +622,7 @@ public class JStatsLib {
      */
     public double max() {
         checkDataSize(1);
-        return basicStats.max();
+        return hasRunningMoments() ? basicStats().max() : summary().getMax();
     }
     
     /**
@@ -168,7 +633,8 @@ public class JStatsLib {
      */
     public double iqr() {
         checkDataSize(4);
-        double result = basicStats.iqr();
+        double[] percentiles = findQuarterPercentiles();
+        double result = percentiles[1] - percentiles[0];
         if (Double.isNaN(result) || result < 0) {
             throw new IllegalStateException("IQR calculation resulted in an invalid value: " + result);
         }
@@ -185,11 +651,11 @@ public class JStatsLib {
     public double normPDF(double number) {
         checkDataSize(2);
         try {
-            double stdDev = basicStats.stddev();
+            double stdDev = hasRunningMoments() ? basicStats().stddev() : summary().getStddev();
             if (Double.isNaN(stdDev) || stdDev <= 0) {
                 throw new IllegalStateException("Cannot calculate normal PDF: Standard deviation must be positive");
             }
-            return advancedStats.normPDF(number);
+            return advancedStats().normPDF(number, mean(), stdDev);
         } catch (Exception e) {
             throw new IllegalStateException("Error calculating normal PDF: " + e.getMessage(), e);
         }
@@ -205,11 +671,11 @@ public class JStatsLib {
     public double normCDF(double number) {
         checkDataSize(2);
         try {
-            double stdDev = basicStats.stddev();
+            double stdDev = hasRunningMoments() ? basicStats().stddev() : summary().getStddev();
             if (Double.isNaN(stdDev) || stdDev <= 0) {
                 throw new IllegalStateException("Cannot calculate normal CDF: Standard deviation must be positive");
             }
-            return advancedStats.normCDF(number);
+            return advancedStats().normCDF(number, mean(), stdDev);
         } catch (Exception e) {
             throw new IllegalStateException("Error calculating normal CDF: " + e.getMessage(), e);
         }
@@ -221,6 +687,9 @@ public class JStatsLib {
      * @return The number of data points
      */
     public int size() {
+        if (sketch != null) {
+            return (int) Math.min(sketch.getCount(), Integer.MAX_VALUE);
+        }
         return tree.getSize();
     }
     
@@ -240,7 +709,7 @@ public class JStatsLib {
         if (Double.isNaN(stddev) || stddev <= 0) {
             throw new IllegalArgumentException("Standard deviation must be positive");
         }
-        return advancedStats.invNorm(value, mean, stddev);
+        return advancedStats().invNorm(value, mean, stddev);
     }
     
     /**
@@ -260,7 +729,7 @@ public class JStatsLib {
         if (Double.isNaN(stddev) || stddev <= 0) {
             throw new IllegalArgumentException("Standard deviation must be positive");
         }
-        return advancedStats.zInterval(cLevel, mean, stddev);
+        return advancedStats().zInterval(cLevel, mean, stddev);
     }
     
     /**
@@ -271,7 +740,7 @@ public class JStatsLib {
      */
     public double[] findQuarterPercentiles() {
         checkDataSize(4);
-        double[] result = basicStats.findQuarterPercentiles();
+        double[] result = summary().getQuarterPercentiles();
         // Validate results
         for (double val : result) {
             if (Double.isNaN(val) || Double.isInfinite(val)) {
@@ -282,7 +751,37 @@ public class JStatsLib {
     }
     
     /**
-     * Calculates the moving average with the specified window size
+     * Calculates an arbitrary quantile, e.g. 0.99 for the 99th percentile.
+     * Interpolates linearly between the two closest values like findQuarterPercentiles.
+     * 
+     * @param p The quantile between 0 and 1
+     * @return The quantile value
+     * @throws IllegalStateException if there is no data
+     * @throws IllegalArgumentException if p is not between 0 and 1
+     */
+    public double quantile(double p) {
+        return quantiles(p)[0];
+    }
+    
+    /**
+     * Calculates several quantiles at once. The ranks are looked up together, so data
+     * that has not been sorted yet is answered by selection in linear time.
+     * 
+     * @param ps The quantiles between 0 and 1
+     * @return The quantile values, in the same order as ps
+     * @throws IllegalStateException if there is no data
+     * @throws IllegalArgumentException if a quantile is not between 0 and 1
+     */
+    public double[] quantiles(double... ps) {
+        checkDataSize(1);
+        if (sketch != null) {
+            return sketch.quantiles(ps);
+        }
+        return basicStats().quantiles(ps);
+    }
+    
+    /**
+     * Calculates the moving average over the data in the order it was imported
      * 
      * @param windowSize The size of the moving window
      * @return A list containing the moving averages
@@ -292,14 +791,32 @@ public class JStatsLib {
         if (windowSize <= 0) {
             throw new IllegalArgumentException("Window size must be positive");
         }
-        if (windowSize > tree.getSize()) {
+        if (windowSize > size()) {
+            throw new IllegalArgumentException("Window size cannot be larger than the data size");
+        }
+        return basicStats().movingAverage(windowSize);
+    }
+    
+    /**
+     * Calculates the leading moving average over the data in the order it was imported,
+     * where each window starts at the current value and looks ahead
+     * 
+     * @param windowSize The size of the moving window
+     * @return A list containing the leading moving averages
+     * @throws IllegalArgumentException if the window size is invalid
+     */
+    public ArrayList<Double> leadingMovingAverage(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+        if (windowSize > size()) {
             throw new IllegalArgumentException("Window size cannot be larger than the data size");
         }
-        return basicStats.movingAverage(windowSize);
+        return basicStats().leadingMovingAverage(windowSize);
     }
     
     /**
-     * Calculates the exponential moving average with the specified alpha
+     * Calculates the exponential moving average over the data in the order it was imported
      * 
      * @param alpha The smoothing factor (0-1)
      * @return A list containing the exponential moving averages
@@ -309,17 +826,47 @@ public class JStatsLib {
         if (alpha <= 0 || alpha >= 1) {
             throw new IllegalArgumentException("Alpha must be between 0 and 1 exclusive");
         }
-        return basicStats.exponentialMovingAverage(alpha);
+        return basicStats().exponentialMovingAverage(alpha);
     }
     
     /**
-     * Calculates the centered moving average with the specified window size
+     * Calculates several moving averages and exponential moving averages over the data in the order
+     * it was imported, all in one traversal of the data into one primitive matrix. Rows 0 to windowSizes.length - 1 hold
+     * movingAverage(windowSizes[i]); the following rows hold exponentialMovingAverage(alphas[j]).
+     * 
+     * @param windowSizes The sizes of the moving windows
+     * @param alphas The smoothing factors (0-1) of the exponential moving averages
+     * @return A matrix with one row per requested series, each as long as the data
+     * @throws IllegalArgumentException if a window size or alpha is invalid
+     */
+    public double[][] movingAverages(int[] windowSizes, double[] alphas) {
+        if (windowSizes == null || alphas == null) {
+            throw new IllegalArgumentException("Window sizes and alphas cannot be null");
+        }
+        for (int windowSize : windowSizes) {
+            if (windowSize <= 0) {
+                throw new IllegalArgumentException("Window size must be positive");
+            }
+            if (windowSize > size()) {
+                throw new IllegalArgumentException("Window size cannot be larger than the data size");
+            }
+        }
+        for (double alpha : alphas) {
+            if (!(alpha > 0 && alpha < 1)) {
+                throw new IllegalArgumentException("Alpha must be between 0 and 1 exclusive");
+            }
+        }
+        return basicStats().movingAverages(windowSizes, alphas);
+    }
+    
+    /**
+     * Calculates the centered moving average over the data in the order it was imported
      * 
      * @param windowSize The size of the moving window
      * @return A list containing the centered moving averages
      */
     public ArrayList<Double> centeredMovingAverage(int windowSize) {
-        return basicStats.centeredMovingAverage(windowSize);
+        return basicStats().centeredMovingAverage(windowSize);
     }
     
     /**
@@ -328,7 +875,26 @@ public class JStatsLib {
      * @return An ArrayList containing all data points
      */
     public ArrayList<Double> toList() {
-        return tree.toArrayList();
+        return store().toArrayList();
+    }
+    
+    /**
+     * Returns the dataset in the order it was imported
+     * 
+     * @return A copy of the data points in arrival order, or in sorted order for a binary dataset
+     */
+    public double[] toSequence() {
+        return sequence != null ? sequence.toArray() : store().toSortedArray();
+    }
+    
+    /**
+     * Lists the distinct values of the dataset with their frequencies, in ascending order.
+     * The table is two primitive arrays, so it is much cheaper to build than toFrequencyMap().
+     * 
+     * @return A FrequencyTable of the values and their frequencies
+     */
+    public FrequencyTable toFrequencyTable() {
+        return store().toFrequencyTable();
     }
     
     /**
@@ -337,6 +903,6 @@ public class JStatsLib {
      * @return A HashMap mapping values to their frequencies
      */
     public HashMap<Double, Integer> toFrequencyMap() {
-        return tree.toFrequencyMap();
+        return store().toFrequencyMap();
     }
 }
\ No newline at end of file
@@ -1,30 +1,40 @@
 package com.statistics.analysis;
-import com.statistics.utils.RBTree;
+import com.statistics.utils.DataStore;
 import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
  * <summary>
- * Provides advanced statistical calculations based on data stored in a Red-Black Tree structure.
+ * Provides advanced statistical calculations based on data held in a DataStore such as a Red-Black Tree.
  * This class builds upon BasicStats functionality and implements various statistical methods
  * for hypothesis testing, probability distributions, and confidence intervals.
  * </summary>
  */
 public class AdvancedStats {
-    private RBTree tree;
+    private DataStore tree;
     private BasicStats basicStats;
     // Mathematical constants for optimization
     private static final double SQRT_2PI = Math.sqrt(2 * Math.PI);
     private static final double SQRT_2 = Math.sqrt(2);
 
     /**
-     * Constructs an AdvancedStats object using the provided Red-Black Tree data structure.
+     * Constructs an AdvancedStats object using the provided data store.
      * 
-     * @param tree The Red-Black Tree containing the data to analyze
+     * @param tree The data store (e.g. a Red-Black Tree) containing the data to analyze
      */
-    public AdvancedStats(RBTree tree) {
-        this.tree = tree;
-        this.basicStats = new BasicStats(tree);
+    public AdvancedStats(DataStore tree) {
+        this(new BasicStats(tree));
+    }
+
+    /**
+     * Constructs an AdvancedStats object on top of an existing BasicStats,
+     * so both share the same lazily built views of the data.
+     * 
+     * @param basicStats The basic statistics of the data to analyze
+     */
+    public AdvancedStats(BasicStats basicStats) {
+        this.tree = basicStats.getDataStore();
+        this.basicStats = basicStats;
     }
 
     /**
@@ -57,8 +67,19 @@ public class AdvancedStats {
      * @return The probability density at the given point
      */
     public double normPDF(double number) {
-        double sigma = basicStats.stddev();
-        double mu = basicStats.mean();
+        return normPDF(number, basicStats.mean(), basicStats.stddev());
+    }
+
+    /**
+     * Calculates the probability density function (PDF) value for a normal distribution
+     * with the given mean and standard deviation.
+     * 
+     * @param number The point at which to evaluate the PDF
+     * @param mu The mean of the normal distribution
+     * @param sigma The standard deviation of the normal distribution
+     * @return The probability density at the given point
+     */
+    public double normPDF(double number, double mu, double sigma) {
         double z = (number - mu) / sigma;
         return (1 / (SQRT_2PI * sigma)) * Math.exp(-0.5 * z * z);
     }
@@ -71,8 +92,19 @@ public class AdvancedStats {
      * @return The probability that a random variable is less than or equal to the given number
      */
     public double normCDF(double number) {
-        double sigma = basicStats.stddev();
-        double mu = basicStats.mean();
+        return normCDF(number, basicStats.mean(), basicStats.stddev());
+    }
+
+    /**
+     * Calculates the cumulative distribution function (CDF) value for a normal distribution
+     * with the given mean and standard deviation.
+     * 
+     * @param number The point up to which to calculate the cumulative probability
+     * @param mu The mean of the normal distribution
+     * @param sigma The standard deviation of the normal distribution
+     * @return The probability that a random variable is less than or equal to the given number
+     */
+    public double normCDF(double number, double mu, double sigma) {
         double z = (number - mu) / (sigma * SQRT_2);
         return 0.5 * (1 + errorFunction(z));
     }
@@ -1,79 +1,359 @@
 package com.statistics.analysis;
 
-import com.statistics.utils.RBTree;
+import com.statistics.utils.DataStore;
+import com.statistics.utils.DoubleArray;
+import com.statistics.utils.FrequencyTable;
+import com.statistics.utils.PrefixSums;
+import com.statistics.utils.QuantileSelector;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * <summary>
- * Provides fundamental statistical calculations for data stored in a Red-Black Tree structure.
+ * Provides fundamental statistical calculations for data held in a DataStore such as a Red-Black Tree.
  * This class implements core descriptive statistics methods and serves as a foundation
  * for more advanced statistical analysis.
+ * Moving averages run over the values in arrival order when that sequence is available.
+ * Values can be added at any time; the mean and variance are kept up to date incrementally.
+ * Derived views (sorted copy, moments) are built lazily and rebuilt when the store's version changes,
+ * so a single BasicStats can be shared by AdvancedStats and kept across imports.
+ * With a parallelism above 1, moments are computed on a ForkJoinPool of that many threads,
+ * created on first use and kept until the parallelism changes or the object is closed.
  * </summary>
  */
-public class BasicStats {
-    private RBTree tree;
-    private HashMap<Double, Integer> map;
-    private ArrayList<Double> arrayList;
+public class BasicStats implements AutoCloseable {
+    // Values per block of the batch smoothing pass: 32 KB of input, which stays in the L1 cache across rows
+    private static final int SMOOTHING_BLOCK_SIZE = 4096;
+
+    private DataStore tree;
+    private DoubleArray sequence;
+    private double[] sortedValues;
+    private FrequencyTable frequencies;
+    private DoubleArray sortedSequence;
+    private RunningMoments moments;
+    private Summary summary;
+    // Store version the views above were built from
+    private long viewVersion;
+    private int parallelism = 1;
+    // Workers for the moments of large datasets, created on first use when parallelism is above 1
+    private ForkJoinPool pool;
+
+    /**
+     * Constructs a BasicStats object using the provided data store.
+     * The data is copied once into a sorted primitive array the first time a calculation needs it.
+     * Order statistics (median, percentiles, min and max) are read from the store directly.
+     * Without an arrival-order sequence, moving averages run over the sorted values.
+     * 
+     * @param tree The data store (e.g. a Red-Black Tree) containing the data to analyze
+     */
+    public BasicStats(DataStore tree) {
+        this(tree, null);
+    }
 
     /**
-     * Constructs a BasicStats object using the provided Red-Black Tree data structure.
-     * Initializes frequency map and sorted array list for efficient statistical calculations.
+     * Constructs a BasicStats object using the provided data store and the same values in arrival order.
+     * The sequence is read in place, so it must hold exactly the values in the store.
      * 
-     * @param tree The Red-Black Tree containing the data to analyze
+     * @param tree The data store (e.g. a Red-Black Tree) containing the data to analyze
+     * @param sequence The values in the order they were read, or null if the order is unknown
      */
-    public BasicStats(RBTree tree) {
+    public BasicStats(DataStore tree, DoubleArray sequence) {
         this.tree = tree;
-        this.map = tree.toFrequencyMap();
-        this.arrayList = tree.toArrayList();
+        this.sequence = sequence;
+        this.viewVersion = tree.getVersion();
+    }
+
+    /**
+     * Returns the data store being analyzed.
+     * 
+     * @return The data store
+     */
+    public DataStore getDataStore() {
+        return tree;
+    }
+
+    /**
+     * Sets the number of threads used to compute the moments of large datasets.
+     * 
+     * @param parallelism The number of threads, 1 to compute on the calling thread only
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        if (parallelism != this.parallelism) {
+            close();
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the number of threads used to compute the moments of large datasets.
+     * 
+     * @return The parallelism setting
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // The pool of parallelism threads, or null to compute on the calling thread
+    private ForkJoinPool pool() {
+        if (parallelism > 1 && pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    /**
+     * Shuts down the worker threads, if any. A later calculation that needs them starts new ones.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    // Drop every view built from an older version of the store
+    private void checkVersion() {
+        long version = tree.getVersion();
+        if (version != viewVersion) {
+            sortedValues = null;
+            frequencies = null;
+            sortedSequence = null;
+            moments = null;
+            summary = null;
+            viewVersion = version;
+        }
+    }
+
+    /**
+     * Returns the data as a sorted primitive array, copying it from the store on first use.
+     * 
+     * @return The sorted values
+     */
+    private double[] values() {
+        checkVersion();
+        if (sortedValues == null) {
+            sortedValues = tree.toSortedArray();
+        }
+        return sortedValues;
+    }
+
+    /**
+     * Returns the distinct values with their counts, built from the store on first use.
+     * 
+     * @return The frequency table of the data
+     */
+    private FrequencyTable frequencies() {
+        checkVersion();
+        if (frequencies == null) {
+            frequencies = tree.toFrequencyTable();
+        }
+        return frequencies;
+    }
+
+    /**
+     * Returns the running moments, computing them in one pass over the data on first use.
+     * 
+     * @return The moments of all values in the store
+     */
+    private RunningMoments moments() {
+        checkVersion();
+        if (moments == null) {
+            moments = new RunningMoments();
+            moments.addAll(series(), pool());
+        }
+        return moments;
+    }
+
+    /**
+     * Returns every descriptive statistic at once. The moments come from the single pass
+     * that is kept up to date incrementally, and the quartiles and median are read from the store
+     * in one batch of rank lookups. The result is cached until the data changes.
+     * 
+     * @return The summary of the data
+     */
+    public Summary summary() {
+        RunningMoments moments = moments();
+        if (summary == null) {
+            int n = tree.getSize();
+            double[] ps = {0.25, 0.75};
+            int[] quartileRanks = QuantileSelector.quantileRanks(n, ps);
+            int[] ranks = Arrays.copyOf(quartileRanks, quartileRanks.length + 2);
+            ranks[quartileRanks.length] = (n - 1) / 2;
+            ranks[quartileRanks.length + 1] = n / 2;
+            double[] selected = tree.selectAll(ranks);
+            double[] quartiles = QuantileSelector.interpolate(n, ps, selected);
+            summary = new Summary(moments.getCount(), moments.getSum(), moments.getMean(),
+                    moments.getM2(), moments.getM3(), moments.getM4(), moments.getMin(), moments.getMax(),
+                    quartiles[0], middle(n, selected[ranks.length - 2], selected[ranks.length - 1]), quartiles[1]);
+        }
+        return summary;
+    }
+
+    /**
+     * Adds a value to the store and the arrival-order sequence, and updates the
+     * running mean and variance in O(1). Sorted views are rebuilt the next time they are needed.
+     * 
+     * @param value The value to add
+     */
+    public void add(double value) {
+        checkVersion();
+        tree.insert(value);
+        if (sequence != null) {
+            sequence.add(value);
+        }
+        if (moments != null) {
+            moments.add(value);
+        }
+        invalidateSortedViews();
+    }
+
+    /**
+     * Adds a batch of values to the store and the arrival-order sequence, and updates the
+     * running mean and variance. The batch is handed to the store together, which sorts it once
+     * or, for a SortedColumn, defers ordering until it is read.
+     * 
+     * @param values The values to add, in arrival order
+     */
+    public void addAll(double[] values) {
+        if (values.length == 0) {
+            return;
+        }
+        checkVersion();
+        tree.insertAll(values.clone(), values.length);
+        if (sequence != null) {
+            sequence.addAll(values, 0, values.length);
+        }
+        if (moments != null) {
+            moments.addAll(values, 0, values.length);
+        }
+        invalidateSortedViews();
+    }
+
+    // Drop the copies that no longer match the store, keeping the updated moments
+    private void invalidateSortedViews() {
+        sortedValues = null;
+        frequencies = null;
+        sortedSequence = null;
+        summary = null;
+        viewVersion = tree.getVersion();
+    }
+
+    /**
+     * Returns the values in arrival order for the time-series functions,
+     * or the sorted values if no sequence was given.
+     * 
+     * @return The sequence to smooth
+     */
+    private DoubleArray series() {
+        checkVersion();
+        if (sequence != null) {
+            return sequence;
+        }
+        if (sortedSequence == null) {
+            double[] values = values();
+            sortedSequence = new DoubleArray(values.length);
+            sortedSequence.addAll(values, 0, values.length);
+        }
+        return sortedSequence;
+    }
+
+    /**
+     * Builds the prefix sums of the series the moving averages run over. They take 16 bytes per value,
+     * so they are not cached: each call that needs them builds them and lets them go afterwards.
+     * 
+     * @return The prefix sums of series()
+     */
+    private PrefixSums prefixSums() {
+        return new PrefixSums(series());
     }
 
     /**
      * Calculates the arithmetic mean (average) of the data.
-     * Takes into account the frequency of each value for weighted calculation.
+     * The mean is maintained incrementally with Welford's algorithm as values are added.
      * 
      * @return The arithmetic mean of all values in the data
      */
     public double mean() {
-        double sum = 0;
-        for (Map.Entry<Double, Integer> entry : map.entrySet()) {
-            sum += entry.getKey() * entry.getValue();
-        }
-        return sum / tree.getSize();
+        return moments().getMean();
     }
 
     /**
      * Determines the mode of the data - the value that appears most frequently.
-     * If multiple values have the same highest frequency, returns the first one found.
+     * If multiple values have the same highest frequency, returns the smallest one.
      * 
      * @return The most frequently occurring value in the data
      */
     public Double mode() {
+        FrequencyTable frequencies = frequencies();
         double mode = 0.0;
         int maxCount = 0;
-        for (Map.Entry<Double, Integer> entry : map.entrySet()) {
-            if (entry.getValue() > maxCount) {
-                mode = entry.getKey();
-                maxCount = entry.getValue();
+        // Entries are in ascending order, so the first of equally frequent values is kept
+        for (int i = 0; i < frequencies.size(); i++) {
+            if (frequencies.getCount(i) > maxCount) {
+                mode = frequencies.getValue(i);
+                maxCount = frequencies.getCount(i);
             }
         }
         return mode;
     }
 
+    /**
+     * Finds the most frequent values without building a frequency map.
+     * The store's frequency table is scanned once and only the k largest counts are kept.
+     * 
+     * @param k The number of values to return
+     * @return Up to k values mapped to their counts, from the most to the least frequent,
+     *         with ties in ascending order of value
+     */
+    public LinkedHashMap<Double, Long> topFrequencies(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        FrequencyTable frequencies = frequencies();
+        // Entry positions; the head is the least frequent, and among equals the largest value
+        PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> frequencies.getCount(a) != frequencies.getCount(b)
+                ? Integer.compare(frequencies.getCount(a), frequencies.getCount(b)) : Integer.compare(b, a));
+        for (int i = 0; i < frequencies.size() && k > 0; i++) {
+            if (top.size() < k) {
+                top.add(i);
+            } else if (frequencies.getCount(i) > frequencies.getCount(top.peek())) {
+                top.poll();
+                top.add(i);
+            }
+        }
+        Integer[] entries = top.toArray(new Integer[0]);
+        Arrays.sort(entries, top.comparator().reversed());
+        LinkedHashMap<Double, Long> result = new LinkedHashMap<>();
+        for (int entry : entries) {
+            result.put(frequencies.getValue(entry), (long) frequencies.getCount(entry));
+        }
+        return result;
+    }
+
     /**
      * Calculates the median of the data - the middle value when data is sorted.
      * For even-sized data, returns the average of the two middle values.
+     * Uses the store's order-statistic lookup, so no sorted copy is needed.
      * 
      * @return The median value of the data
      */
     public double median() {
         int n = tree.getSize();
-        if (n % 2 == 0) {
-            return (arrayList.get(n / 2 - 1) + arrayList.get(n / 2)) / 2;
-        } else {
-            return arrayList.get(n / 2);
-        }
+        double[] middle = tree.selectAll((n - 1) / 2, n / 2);
+        return middle(n, middle[0], middle[1]);
+    }
+
+    // The median from the values at ranks (n - 1) / 2 and n / 2
+    private static double middle(int n, double lower, double upper) {
+        return n % 2 == 0 ? (lower + upper) / 2 : lower;
     }
 
     /**
@@ -89,17 +369,12 @@ public class BasicStats {
     /**
      * Calculates the variance of the data using Bessel's correction (n-1 denominator).
      * Variance measures how far the values are spread out from their average value.
+     * It is maintained incrementally with Welford's algorithm as values are added.
      * 
      * @return The variance of the data
      */
     public double variance() {
-        double sum = 0;
-        double mean = mean();
-
-        for (Map.Entry<Double, Integer> entry : map.entrySet()) {
-            sum += Math.pow(entry.getKey() - mean, 2) * entry.getValue();
-        }
-        return sum / (tree.getSize() - 1);
+        return moments().getVariance();
     }
 
     /**
@@ -109,25 +384,35 @@ public class BasicStats {
      * @return The range of the data
      */
     public double range() {
-        return arrayList.get(arrayList.size() - 1) - arrayList.get(0);
+        return max() - min();
     }
 
     /**
-     * Returns the minimum value in the data.
+     * Returns the minimum value in the data, kept up to date with the running moments.
      * 
      * @return The smallest value in the data
+     * @throws IllegalStateException if there is no data
      */
     public double min() {
-        return arrayList.get(0);
+        checkNotEmpty();
+        return moments().getMin();
     }
 
     /**
-     * Returns the maximum value in the data.
+     * Returns the maximum value in the data, kept up to date with the running moments.
      * 
      * @return The largest value in the data
+     * @throws IllegalStateException if there is no data
      */
     public double max() {
-        return arrayList.get(arrayList.size() - 1);
+        checkNotEmpty();
+        return moments().getMax();
+    }
+
+    private void checkNotEmpty() {
+        if (tree.getSize() == 0) {
+            throw new IllegalStateException("Cannot calculate statistics of an empty dataset");
+        }
     }
 
     /**
@@ -149,73 +434,68 @@ public class BasicStats {
      * @return An array containing [Q1, Q3] values
      */
     public double[] findQuarterPercentiles() {
-        double q1Index = 0.25 * (arrayList.size() - 1);
-        double q3Index = 0.75 * (arrayList.size() - 1);
-
-        double q1 = interpolate(arrayList, q1Index);
-        double q3 = interpolate(arrayList, q3Index);
-
-        return new double[]{q1, q3};
+        return quantiles(0.25, 0.75);
     }
 
     /**
-     * Performs linear interpolation to find values at non-integer indices.
-     * This allows for more accurate percentile calculations.
+     * Calculates an arbitrary quantile of the data, e.g. 0.99 for the 99th percentile.
+     * Uses linear interpolation between the two closest ranks, like the quartiles.
      * 
-     * @param array The sorted array of data points
-     * @param index The position (potentially fractional) at which to interpolate
-     * @return The interpolated value at the specified position
+     * @param p The quantile between 0 and 1
+     * @return The value below which a fraction p of the data lies
      */
-    private double interpolate(ArrayList<Double> array, double index) {
-        int idx = (int) index;
-        double fraction = index - idx;
+    public double quantile(double p) {
+        return quantiles(p)[0];
+    }
 
-        if (idx >= array.size() - 1) {
-            return array.get(array.size() - 1);
+    /**
+     * Calculates several quantiles at once.
+     * All ranks are looked up in one batch, so a store holding unsorted values answers them
+     * with a single pass of selection instead of sorting.
+     * 
+     * @param ps The quantiles between 0 and 1
+     * @return The quantiles, in the same order as ps
+     */
+    public double[] quantiles(double... ps) {
+        int n = tree.getSize();
+        if (n == 0) {
+            throw new IllegalStateException("Cannot calculate quantiles of an empty dataset");
         }
-        return array.get(idx) + fraction * (array.get(idx + 1) - array.get(idx));
+        int[] ranks = QuantileSelector.quantileRanks(n, ps);
+        return QuantileSelector.interpolate(n, ps, tree.selectAll(ranks));
     }
     
     /**
-     * Calculates the rolling (moving) average of the data with a specified window size.
+     * Calculates the rolling (moving) average of the data in arrival order with a specified window size.
      * The function returns an ArrayList containing the rolling averages where each entry
      * corresponds to the average of the current element and the previous (windowSize-1) elements.
      * The first (windowSize-1) entries will contain averages of fewer elements as there
      * aren't enough previous elements available.
+     * Each average is read from prefix sums built for the call in O(1), so the whole series takes O(n).
      * 
      * @param windowSize The number of elements to include in the rolling average window
      * @return ArrayList of rolling averages, same size as the original data
      * @throws IllegalArgumentException if windowSize is less than 1 or greater than data size
      */
     public ArrayList<Double> movingAverage(int windowSize) {
-        if (windowSize < 1) {
-            throw new IllegalArgumentException("Window size must be at least 1");
-        }
-        
-        if (windowSize > arrayList.size()) {
-            throw new IllegalArgumentException("Window size cannot be larger than the data size");
-        }
-        
-        ArrayList<Double> result = new ArrayList<>(arrayList.size());
-        double sum = 0;
-        
-        // Process first window elements
-        for (int i = 0; i < windowSize; i++) {
-            sum += arrayList.get(i);
-            result.add(sum / (i + 1));  // Average of elements seen so far
-        }
-        
-        // Process remaining elements using sliding window
-        for (int i = windowSize; i < arrayList.size(); i++) {
-            sum = sum - arrayList.get(i - windowSize) + arrayList.get(i);
-            result.add(sum / windowSize);
-        }
-        
-        return result;
+        return toList(prefixSums().trailingMeans(windowSize));
     }
     
     /**
-     * Calculates and returns the exponentially weighted moving average (EWMA) of the data.
+     * Calculates the leading moving average of the data in arrival order: each entry is the average
+     * of the current element and the next (windowSize-1) elements. The last (windowSize-1) entries
+     * average fewer elements as there aren't enough later elements available. Runs in O(n).
+     * 
+     * @param windowSize The number of elements to include in each window
+     * @return ArrayList of leading averages, same size as the original data
+     * @throws IllegalArgumentException if windowSize is less than 1 or greater than data size
+     */
+    public ArrayList<Double> leadingMovingAverage(int windowSize) {
+        return toList(prefixSums().leadingMeans(windowSize));
+    }
+    
+    /**
+     * Calculates and returns the exponentially weighted moving average (EWMA) of the data in arrival order.
      * In EWMA, more recent observations are given more weight than older observations,
      * with the weight decreasing exponentially as observations get older.
      * 
@@ -224,23 +504,26 @@ public class BasicStats {
      * @throws IllegalArgumentException if alpha is not between 0 and 1
      */
     public ArrayList<Double> exponentialMovingAverage(double alpha) {
+        DoubleArray series = series();
+        double[] values = series.array();
+        int n = series.size();
         if (alpha < 0 || alpha > 1) {
             throw new IllegalArgumentException("Alpha must be between 0 and 1");
         }
         
-        ArrayList<Double> result = new ArrayList<>(arrayList.size());
+        ArrayList<Double> result = new ArrayList<>(n);
         
-        if (arrayList.isEmpty()) {
+        if (n == 0) {
             return result;
         }
         
         // Initialize with first value
-        double currentEMA = arrayList.get(0);
+        double currentEMA = values[0];
         result.add(currentEMA);
         
         // Calculate EMA for remaining values
-        for (int i = 1; i < arrayList.size(); i++) {
-            currentEMA = alpha * arrayList.get(i) + (1 - alpha) * currentEMA;
+        for (int i = 1; i < n; i++) {
+            currentEMA = alpha * values[i] + (1 - alpha) * currentEMA;
             result.add(currentEMA);
         }
         
@@ -248,57 +531,87 @@ public class BasicStats {
     }
     
     /**
-     * Calculates centered moving average (used often in time series analysis).
+     * Calculates centered moving average of the data in arrival order (used often in time series analysis).
      * For odd window sizes, it's a symmetric window around the current point.
      * For even window sizes, it averages two simple moving averages to center the window.
+     * Every window sum is read from prefix sums built for the call in O(1), so any window size takes O(n).
      * 
      * @param windowSize The window size for the moving average (should be odd for true centering)
      * @return ArrayList of centered moving averages (will be shorter than original data)
      * @throws IllegalArgumentException if windowSize is less than 2 or greater than data size
      */
     public ArrayList<Double> centeredMovingAverage(int windowSize) {
-        if (windowSize < 2) {
-            throw new IllegalArgumentException("Window size must be at least 2");
+        return toList(prefixSums().centeredMeans(windowSize));
+    }
+    
+    /**
+     * Calculates several trailing moving averages and exponentially weighted moving averages of the data
+     * in arrival order in a single traversal, writing them into one primitive matrix instead of a list per series.
+     * Row i holds movingAverage(windowSizes[i]); the rows after them hold exponentialMovingAverage(alphas[j])
+     * in the order given. Window sums are read from prefix sums built once for the batch, so the work is
+     * O(n * (windowSizes.length + alphas.length)) whatever the window sizes. The series is walked in
+     * cache-sized blocks and every row advances through each block in turn, so the input is read once
+     * while each row is still written contiguously.
+     * 
+     * @param windowSizes The window sizes of the trailing moving averages, may be empty
+     * @param alphas The smoothing factors of the exponential moving averages, may be empty
+     * @return Matrix of windowSizes.length + alphas.length rows, each the size of the original data
+     * @throws IllegalArgumentException if a window size is less than 1 or greater than data size,
+     *         or an alpha is not strictly between 0 and 1
+     */
+    public double[][] movingAverages(int[] windowSizes, double[] alphas) {
+        DoubleArray series = series();
+        double[] values = series.array();
+        int n = series.size();
+        for (int windowSize : windowSizes) {
+            if (windowSize < 1) {
+                throw new IllegalArgumentException("Window size must be at least 1");
+            }
+            if (windowSize > n) {
+                throw new IllegalArgumentException("Window size cannot be larger than the data size");
+            }
         }
-        
-        if (windowSize > arrayList.size()) {
-            throw new IllegalArgumentException("Window size cannot be larger than the data size");
+        for (double alpha : alphas) {
+            if (!(alpha > 0 && alpha < 1)) {
+                throw new IllegalArgumentException("Alpha must be between 0 and 1 exclusive");
+            }
         }
         
-        ArrayList<Double> result = new ArrayList<>();
-        int offset = windowSize / 2;
-        
-        // If window odd, center perfectly
-        if (windowSize % 2 == 1) {
-            for (int i = offset; i < arrayList.size() - offset; i++) {
-                double sum = 0;
-                for (int j = i - offset; j <= i + offset; j++) {
-                    sum += arrayList.get(j);
-                }
-                result.add(sum / windowSize);
+        int windows = windowSizes.length;
+        double[][] result = new double[windows + alphas.length][n];
+        if (n == 0) {
+            return result;
+        }
+        PrefixSums sums = windows > 0 ? prefixSums() : null;
+        double[] ema = new double[alphas.length];
+        Arrays.fill(ema, values[0]);
+        for (int start = 0; start < n; start += SMOOTHING_BLOCK_SIZE) {
+            int end = Math.min(n, start + SMOOTHING_BLOCK_SIZE);
+            for (int w = 0; w < windows; w++) {
+                sums.trailingMeans(windowSizes[w], start, end, result[w]);
             }
-        } 
-        // If window even, average two consecutive centered values
-        else {
-            for (int i = offset; i < arrayList.size() - offset; i++) {
-                double sum1 = 0;
-                double sum2 = 0;
-                
-                // First average (i-offset to i+offset-1)
-                for (int j = i - offset; j < i + offset; j++) {
-                    sum1 += arrayList.get(j);
+            for (int j = 0; j < alphas.length; j++) {
+                double alpha = alphas[j];
+                double current = ema[j];
+                double[] row = result[windows + j];
+                for (int i = start; i < end; i++) {
+                    if (i > 0) {
+                        current = alpha * values[i] + (1 - alpha) * current;
+                    }
+                    row[i] = current;
                 }
-                
-                // Second average (i-offset+1 to i+offset)
-                for (int j = i - offset + 1; j <= i + offset; j++) {
-                    sum2 += arrayList.get(j);
-                }
-                
-                // Average of the two averages
-                result.add((sum1 / windowSize + sum2 / windowSize) / 2);
+                ema[j] = current;
             }
         }
-        
+        return result;
+    }
+    
+    // Box the averages for the ArrayList-based API
+    private static ArrayList<Double> toList(double[] values) {
+        ArrayList<Double> result = new ArrayList<>(values.length);
+        for (double value : values) {
+            result.add(value);
+        }
         return result;
     }
 }
\ No newline at end of file
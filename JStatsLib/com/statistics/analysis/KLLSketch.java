@@ -0,0 +1,533 @@
+package com.statistics.analysis;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.DoubleConsumer;
+
+/**
+ * <summary>
+ * KLLSketch is a quantile sketch (Karnin, Lang and Liberty) whose rank error has a known bound.
+ * Values are kept in levels of compactors: when a level fills up it is sorted and every other
+ * value, starting at a random offset, moves up a level with twice the weight while the rest
+ * are dropped. The retained values are a weighted sample from which quantiles, ranks and the
+ * CDF are read. With parameter k, a rank answered by the sketch differs from the exact rank
+ * by at most getRankError() of the count with 99% confidence, about 1.3% for the default k of 200.
+ * Memory grows only with k and the logarithm of the number of values.
+ * Sketches can be merged and serialized, and as a DoubleConsumer they can be fed by a FileHandler.
+ * </summary>
+ */
+public class KLLSketch implements DoubleConsumer {
+    private static final int DEFAULT_K = 200;
+    // Smallest capacity of any level, so the lowest levels do not compact too often
+    private static final int MIN_LEVEL_CAPACITY = 8;
+    // Each level below the top may hold this fraction of the capacity of the one above it
+    private static final double CAPACITY_RATIO = 2.0 / 3.0;
+    private static final int MAGIC = 0x4A534B4C; // "JSKL"
+    private static final int VERSION = 1;
+
+    private final int k;
+    private final Random random;
+    // levels[h][0, sizes[h]) holds values of weight 2^h; every level above 0 is sorted
+    private double[][] levels;
+    private int[] sizes;
+    private int levelCount;
+    // Sum of the level capacities, which only changes when a level is added
+    private int totalCapacity;
+    private int retained;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    // Retained values in ascending order with the cumulative weight up to each, built on demand
+    private double[] sortedValues;
+    private long[] cumulativeWeights;
+
+    /**
+     * Constructs an empty KLLSketch with k = 200
+     */
+    public KLLSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Constructs an empty KLLSketch. Larger k lowers the rank error roughly in proportion
+     * and raises memory in proportion.
+     *
+     * @param k The accuracy parameter, at least 8
+     */
+    public KLLSketch(int k) {
+        this(k, new Random());
+    }
+
+    /**
+     * Constructs an empty KLLSketch whose compactions are reproducible for the given seed
+     *
+     * @param k The accuracy parameter, at least 8
+     * @param seed The seed of the random offsets used when compacting
+     */
+    public KLLSketch(int k, long seed) {
+        this(k, new Random(seed));
+    }
+
+    private KLLSketch(int k, Random random) {
+        if (k < MIN_LEVEL_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_LEVEL_CAPACITY);
+        }
+        this.k = k;
+        this.random = random;
+        levels = new double[][]{new double[k]};
+        sizes = new int[1];
+        levelCount = 1;
+        totalCapacity = capacity(0);
+    }
+
+    /**
+     * Adds a value to the sketch in amortized O(1)
+     *
+     * @param value The value to add
+     * @throws IllegalArgumentException if the value is NaN
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot add NaN to a KLLSketch");
+        }
+        if (retained >= totalCapacity) {
+            compress();
+        }
+        append(0, value);
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sortedValues = null;
+    }
+
+    @Override
+    public void accept(double value) {
+        add(value);
+    }
+
+    /**
+     * Adds a range of values to the sketch
+     *
+     * @param values The array holding the values
+     * @param from The index of the first value
+     * @param length The number of values to add
+     */
+    public void addAll(double[] values, int from, int length) {
+        if (from < 0 || length < 0 || from + length > values.length) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + (from + length) + ") out of bounds for length " + values.length);
+        }
+        for (int i = from; i < from + length; i++) {
+            add(values[i]);
+        }
+    }
+
+    /**
+     * Merges another sketch with the same k into this one. The error bound of the result
+     * is the same as if every value had been added to a single sketch.
+     *
+     * @param other The sketch to merge, which is left unchanged
+     * @throws IllegalArgumentException if the sketches have different k
+     */
+    public void merge(KLLSketch other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge sketches with different k: " + k + " and " + other.k);
+        }
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a KLLSketch with itself");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        while (levelCount < other.levelCount) {
+            addLevel();
+        }
+        for (int i = 0; i < other.sizes[0]; i++) {
+            append(0, other.levels[0][i]);
+        }
+        for (int h = 1; h < other.levelCount; h++) {
+            mergeSorted(h, other.levels[h], 0, other.sizes[h]);
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        while (retained > totalCapacity) {
+            compress();
+        }
+        sortedValues = null;
+    }
+
+    // The capacity of level h while there are levelCount levels
+    private int capacity(int h) {
+        int depth = levelCount - 1 - h;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_RATIO, depth)));
+    }
+
+    // Compact the lowest level that is full, promoting half of its values to the level above
+    private void compress() {
+        int h = 0;
+        while (sizes[h] < capacity(h)) {
+            h++;
+        }
+        if (h == levelCount - 1) {
+            addLevel();
+        }
+        double[] level = levels[h];
+        int size = sizes[h];
+        if (h == 0) {
+            Arrays.sort(level, 0, size);
+        }
+
+        // With an odd number of values the smallest one stays behind
+        int start = size % 2;
+        double[] promoted = new double[(size - start) / 2];
+        int offset = random.nextBoolean() ? 1 : 0;
+        for (int i = 0; i < promoted.length; i++) {
+            promoted[i] = level[start + 2 * i + offset];
+        }
+        sizes[h] = start;
+        retained -= size - start;
+        mergeSorted(h + 1, promoted, 0, promoted.length);
+    }
+
+    private void addLevel() {
+        if (levelCount == levels.length) {
+            levels = Arrays.copyOf(levels, levelCount + 1);
+            sizes = Arrays.copyOf(sizes, levelCount + 1);
+        }
+        levels[levelCount] = new double[MIN_LEVEL_CAPACITY];
+        levelCount++;
+        totalCapacity = 0;
+        for (int h = 0; h < levelCount; h++) {
+            totalCapacity += capacity(h);
+        }
+    }
+
+    private void append(int h, double value) {
+        if (sizes[h] == levels[h].length) {
+            levels[h] = Arrays.copyOf(levels[h], sizes[h] * 2);
+        }
+        levels[h][sizes[h]++] = value;
+        retained++;
+    }
+
+    // Merge sorted values[from, from + length) into the sorted level h
+    private void mergeSorted(int h, double[] values, int from, int length) {
+        double[] level = levels[h];
+        int size = sizes[h];
+        double[] merged = level.length >= size + length ? level : new double[Math.max(2 * level.length, size + length)];
+        // Merge from the back so the existing values move at most once
+        int i = size - 1;
+        int j = from + length - 1;
+        int out = size + length - 1;
+        while (j >= from) {
+            if (i >= 0 && level[i] > values[j]) {
+                merged[out--] = level[i--];
+            } else {
+                merged[out--] = values[j--];
+            }
+        }
+        while (i >= 0 && merged != level) {
+            merged[out--] = level[i--];
+        }
+        levels[h] = merged;
+        sizes[h] = size + length;
+        retained += length;
+    }
+
+    // Sort the retained values and accumulate their weights for the queries
+    private void buildSortedView() {
+        if (sortedValues != null) {
+            return;
+        }
+        if (count == 0) {
+            throw new IllegalStateException("The sketch is empty");
+        }
+        double[] values = Arrays.copyOf(levels[0], sizes[0]);
+        Arrays.sort(values);
+        long[] weights = new long[values.length];
+        Arrays.fill(weights, 1);
+        for (int h = 1; h < levelCount; h++) {
+            long weight = 1L << h;
+            double[] level = levels[h];
+            int size = sizes[h];
+            double[] mergedValues = new double[values.length + size];
+            long[] mergedWeights = new long[mergedValues.length];
+            int i = 0;
+            int j = 0;
+            for (int out = 0; out < mergedValues.length; out++) {
+                if (j == size || (i < values.length && values[i] <= level[j])) {
+                    mergedValues[out] = values[i];
+                    mergedWeights[out] = weights[i++];
+                } else {
+                    mergedValues[out] = level[j++];
+                    mergedWeights[out] = weight;
+                }
+            }
+            values = mergedValues;
+            weights = mergedWeights;
+        }
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+        sortedValues = values;
+        cumulativeWeights = weights;
+    }
+
+    /**
+     * Returns a value whose rank is within getRankError() of p. The result is always
+     * one of the values that were added; no interpolation is done.
+     *
+     * @param p The quantile between 0 and 1
+     * @return The smallest retained value whose estimated rank is at least p
+     * @throws IllegalStateException if the sketch is empty
+     */
+    public double quantile(double p) {
+        if (!(p >= 0 && p <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + p);
+        }
+        buildSortedView();
+        if (p == 0) {
+            return min;
+        }
+        if (p == 1) {
+            return max;
+        }
+        // Binary search for the first retained value whose normalized rank reaches p
+        int low = 0;
+        int high = sortedValues.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if ((double) cumulativeWeights[mid] / count < p) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return sortedValues[low];
+    }
+
+    /**
+     * Returns a value that is at most the true quantile p with 99% confidence
+     *
+     * @param p The quantile between 0 and 1
+     * @return The quantile at p minus the rank error
+     */
+    public double quantileLowerBound(double p) {
+        if (!(p >= 0 && p <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + p);
+        }
+        return quantile(Math.max(0, p - getRankError()));
+    }
+
+    /**
+     * Returns a value that is at least the true quantile p with 99% confidence
+     *
+     * @param p The quantile between 0 and 1
+     * @return The quantile at p plus the rank error
+     */
+    public double quantileUpperBound(double p) {
+        if (!(p >= 0 && p <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + p);
+        }
+        return quantile(Math.min(1, p + getRankError()));
+    }
+
+    /**
+     * Estimates the fraction of values less than or equal to x.
+     * The true fraction lies within getRankError() of the result with 99% confidence.
+     *
+     * @param x The value to rank
+     * @return The estimated normalized rank, between 0 and 1
+     * @throws IllegalStateException if the sketch is empty
+     */
+    public double rank(double x) {
+        buildSortedView();
+        int low = 0;
+        int high = sortedValues.length;
+        // Binary search for the first retained value greater than x
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedValues[mid] <= x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low == 0 ? 0 : (double) cumulativeWeights[low - 1] / count;
+    }
+
+    /**
+     * Estimates the cumulative distribution at several points, each within getRankError()
+     *
+     * @param splitPoints The values to rank, in any order
+     * @return The estimated fraction of values less than or equal to each split point
+     */
+    public double[] cdf(double... splitPoints) {
+        double[] result = new double[splitPoints.length];
+        for (int i = 0; i < splitPoints.length; i++) {
+            result[i] = rank(splitPoints[i]);
+        }
+        return result;
+    }
+
+    /**
+     * The bound on the error of rank, cdf and quantile answers as a fraction of the count,
+     * holding with 99% confidence. It uses the constants fitted for KLL by Apache DataSketches,
+     * 2.296 / k^0.9723, and is 0 while no values have been compacted, since answers are then exact.
+     *
+     * @return The normalized rank error
+     */
+    public double getRankError() {
+        if (levelCount == 1 && retained == count) {
+            return 0;
+        }
+        return 2.296 / Math.pow(k, 0.9723);
+    }
+
+    /**
+     * @return The accuracy parameter k
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * @return The number of values added, including those of merged sketches
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The number of values the sketch currently keeps
+     */
+    public int getRetained() {
+        return retained;
+    }
+
+    /**
+     * @return The smallest value added, or positive infinity if the sketch is empty
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return The largest value added, or negative infinity if the sketch is empty
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Serializes the sketch. The layout is little-endian: magic, version, k, level count, count,
+     * min, max, then for each level its size followed by its values.
+     *
+     * @return The serialized sketch
+     */
+    public byte[] toByteArray() {
+        ByteBuffer out = ByteBuffer.allocate(40 + 4 * levelCount + 8 * retained).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(k);
+        out.putInt(levelCount);
+        out.putLong(count);
+        out.putDouble(min);
+        out.putDouble(max);
+        for (int h = 0; h < levelCount; h++) {
+            out.putInt(sizes[h]);
+            for (int i = 0; i < sizes[h]; i++) {
+                out.putDouble(levels[h][i]);
+            }
+        }
+        return out.array();
+    }
+
+    /**
+     * Restores a sketch written by toByteArray
+     *
+     * @param bytes The serialized sketch
+     * @return A sketch with the same values, k and error bound
+     * @throws IllegalArgumentException if the bytes are not a valid sketch, or its count, min and max
+     *         disagree with the retained values and their weights
+     */
+    public static KLLSketch fromByteArray(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a serialized KLLSketch");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported KLLSketch version " + version);
+            }
+            int k = in.getInt();
+            if (k < MIN_LEVEL_CAPACITY) {
+                throw new IllegalArgumentException("Invalid k " + k + ", must be at least " + MIN_LEVEL_CAPACITY);
+            }
+            int levelCount = in.getInt();
+            if (levelCount < 1 || levelCount > 64) {
+                throw new IllegalArgumentException("Invalid level count " + levelCount);
+            }
+            long count = in.getLong();
+            double min = in.getDouble();
+            double max = in.getDouble();
+            double[][] levels = new double[levelCount][];
+            int[] sizes = new int[levelCount];
+            long weight = 0;
+            for (int h = 0; h < levelCount; h++) {
+                int size = in.getInt();
+                if (size < 0 || size > in.remaining() / 8) {
+                    throw new IllegalArgumentException("Invalid size " + size + " of level " + h);
+                }
+                double[] level = new double[Math.max(size, MIN_LEVEL_CAPACITY)];
+                for (int i = 0; i < size; i++) {
+                    level[i] = in.getDouble();
+                    if (!(level[i] >= min && level[i] <= max)) {
+                        throw new IllegalArgumentException("Value " + level[i] + " of level " + h + " is outside [min, max]");
+                    }
+                    if (h > 0 && i > 0 && level[i] < level[i - 1]) {
+                        throw new IllegalArgumentException("Level " + h + " is not sorted");
+                    }
+                }
+                if (size > 0) {
+                    try {
+                        if (h >= 63) {
+                            throw new ArithmeticException();
+                        }
+                        weight = Math.addExact(weight, Math.multiplyExact((long) size, 1L << h));
+                    } catch (ArithmeticException e) {
+                        throw new IllegalArgumentException("Weight of level " + h + " overflows the count");
+                    }
+                }
+                levels[h] = level;
+                sizes[h] = size;
+            }
+            if (count != weight) {
+                throw new IllegalArgumentException("Count " + count + " does not match the retained weight " + weight);
+            }
+            if (count == 0 ? min != Double.POSITIVE_INFINITY || max != Double.NEGATIVE_INFINITY : !(min <= max)) {
+                throw new IllegalArgumentException("Invalid min " + min + " and max " + max + " for count " + count);
+            }
+
+            KLLSketch sketch = new KLLSketch(k);
+            while (sketch.levelCount < levelCount) {
+                sketch.addLevel();
+            }
+            sketch.count = count;
+            sketch.min = min;
+            sketch.max = max;
+            for (int h = 0; h < levelCount; h++) {
+                sketch.levels[h] = levels[h];
+                sketch.sizes[h] = sizes[h];
+                sketch.retained += sizes[h];
+            }
+            return sketch;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Serialized KLLSketch is truncated", e);
+        }
+    }
+}
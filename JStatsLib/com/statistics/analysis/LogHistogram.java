@@ -0,0 +1,473 @@
+package com.statistics.analysis;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+/**
+ * <summary>
+ * LogHistogram records non-negative values such as latencies in buckets whose width grows with
+ * the value, after Gil Tene's HdrHistogram. Values are measured in units of the lowest discernible
+ * value; each power of two of that range is split into 2^m sub-buckets, enough to keep the
+ * configured number of significant digits, so every value is known to within a relative error
+ * of 10^-digits however many orders of magnitude the data spans.
+ * Memory is fixed by the range and precision, not by the number of values: one long per bucket,
+ * about 20 KB for microseconds to a minute at 2 significant digits. Recording a value is O(1) and
+ * quantiles walk the buckets once. Histograms of the same layout can be merged, and toByteArray
+ * keeps only the non-zero counts, typically a few hundred bytes, so per-minute distributions
+ * can be kept for days in a few MB.
+ * As a DoubleConsumer it can be fed directly by a FileHandler.
+ * </summary>
+ */
+public class LogHistogram implements DoubleConsumer {
+    private static final int MAGIC = 0x4A53484C; // "JSHL"
+    private static final int VERSION = 1;
+    private static final int MAX_SIGNIFICANT_DIGITS = 5;
+
+    private final double lowestDiscernibleValue;
+    private final double highestTrackableValue;
+    private final int significantDigits;
+    // Each power of two above the first holds subBucketHalfCount buckets of equal width
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final long subBucketMask;
+    private final long[] counts;
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Constructs an empty LogHistogram covering values from 0 to highestTrackableValue.
+     * For latencies in milliseconds from 1 microsecond to a minute, use (0.001, 60000, 2).
+     *
+     * @param lowestDiscernibleValue The smallest difference between values that is kept; smaller values count as 0
+     * @param highestTrackableValue The largest value that can be recorded, at least twice the lowest
+     * @param significantDigits The number of significant decimal digits kept for each value, from 0 to 5
+     */
+    public LogHistogram(double lowestDiscernibleValue, double highestTrackableValue, int significantDigits) {
+        if (!(lowestDiscernibleValue > 0) || Double.isInfinite(lowestDiscernibleValue)) {
+            throw new IllegalArgumentException("Lowest discernible value must be positive");
+        }
+        if (!(highestTrackableValue >= 2 * lowestDiscernibleValue) || highestTrackableValue / lowestDiscernibleValue > 0x1p62) {
+            throw new IllegalArgumentException("Highest trackable value must be between 2 and 2^62 times the lowest discernible value");
+        }
+        if (significantDigits < 0 || significantDigits > MAX_SIGNIFICANT_DIGITS) {
+            throw new IllegalArgumentException("Significant digits must be between 0 and " + MAX_SIGNIFICANT_DIGITS);
+        }
+        this.lowestDiscernibleValue = lowestDiscernibleValue;
+        this.highestTrackableValue = highestTrackableValue;
+        this.significantDigits = significantDigits;
+
+        // Two sub-buckets per unit of the last kept digit, rounded up to a power of two
+        long largestSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        int subBucketCountMagnitude = 64 - Long.numberOfLeadingZeros(largestSingleUnitResolution - 1);
+        subBucketHalfCountMagnitude = Math.max(subBucketCountMagnitude, 1) - 1;
+        subBucketHalfCount = 1 << subBucketHalfCountMagnitude;
+        subBucketMask = 2L * subBucketHalfCount - 1;
+
+        long highestUnits = (long) (highestTrackableValue / lowestDiscernibleValue);
+        long smallestUntrackable = 2L * subBucketHalfCount;
+        int bucketCount = 1;
+        while (smallestUntrackable <= highestUnits) {
+            // As in HdrHistogram: one more bucket covers the rest once doubling would overflow
+            if (smallestUntrackable > Long.MAX_VALUE / 2) {
+                bucketCount++;
+                break;
+            }
+            smallestUntrackable <<= 1;
+            bucketCount++;
+        }
+        counts = new long[(bucketCount + 1) << subBucketHalfCountMagnitude];
+    }
+
+    /**
+     * Records a value in O(1)
+     *
+     * @param value The value to record
+     * @throws IllegalArgumentException if the value is negative, NaN or above the highest trackable value
+     */
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /**
+     * Records a value several times, e.g. from pre-aggregated data
+     *
+     * @param value The value to record
+     * @param occurrences The number of times it occurred, at least 0
+     * @throws IllegalArgumentException if the value is negative, NaN or above the highest trackable value
+     */
+    public void add(double value, long occurrences) {
+        if (!(value >= 0 && value <= highestTrackableValue)) {
+            throw new IllegalArgumentException("Value " + value + " is outside the trackable range [0, " + highestTrackableValue + "]");
+        }
+        if (occurrences < 0) {
+            throw new IllegalArgumentException("Occurrences cannot be negative");
+        }
+        if (occurrences == 0) {
+            return;
+        }
+        counts[indexOf(value)] += occurrences;
+        count += occurrences;
+        sum += value * occurrences;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    @Override
+    public void accept(double value) {
+        add(value);
+    }
+
+    /**
+     * Records a range of values
+     *
+     * @param values The array holding the values
+     * @param from The index of the first value
+     * @param length The number of values to record
+     */
+    public void addAll(double[] values, int from, int length) {
+        if (from < 0 || length < 0 || from + length > values.length) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + (from + length) + ") out of bounds for length " + values.length);
+        }
+        for (int i = from; i < from + length; i++) {
+            add(values[i]);
+        }
+    }
+
+    // Bucket of a value: the power of two of its units picks the bucket, the leading bits the sub-bucket
+    private int indexOf(double value) {
+        long units = (long) (value / lowestDiscernibleValue);
+        int bucketIndex = 63 - subBucketHalfCountMagnitude - Long.numberOfLeadingZeros(units | subBucketMask);
+        int subBucketIndex = (int) (units >>> bucketIndex);
+        return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + subBucketIndex - subBucketHalfCount;
+    }
+
+    // Smallest number of units that falls into the bucket
+    private long lowestUnits(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return (long) subBucketIndex << bucketIndex;
+    }
+
+    private long widthUnits(int index) {
+        return 1L << Math.max(0, (index >> subBucketHalfCountMagnitude) - 1);
+    }
+
+    // The largest value equivalent to the bucket, kept within the values actually recorded
+    private double highestEquivalentValue(int index) {
+        double value = (lowestUnits(index) + widthUnits(index) - 1) * lowestDiscernibleValue;
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Merges another histogram into this one, as if its values had been recorded here
+     *
+     * @param other The histogram to merge, which is left unchanged
+     * @throws IllegalArgumentException if the lowest discernible value or significant digits differ,
+     * or the other histogram holds values above this one's highest trackable value
+     */
+    public void merge(LogHistogram other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a LogHistogram with itself");
+        }
+        if (other.lowestDiscernibleValue != lowestDiscernibleValue || other.significantDigits != significantDigits) {
+            throw new IllegalArgumentException("Cannot merge histograms with different lowest discernible values or significant digits");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        if (other.max > highestTrackableValue) {
+            throw new IllegalArgumentException("Value " + other.max + " is above the highest trackable value " + highestTrackableValue);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes every recorded value, keeping the layout, so one histogram can be reused per interval
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Returns the value at a quantile, e.g. 0.99 for the 99th percentile.
+     * As in HdrHistogram the result is the highest value equivalent to the bucket holding that rank,
+     * so it never understates the quantile by more than the lowest discernible value and never
+     * overstates it by more than the relative error.
+     *
+     * @param p The quantile between 0 and 1
+     * @return The value at or below which a fraction p of the values lie
+     * @throws IllegalStateException if no values were recorded
+     */
+    public double quantile(double p) {
+        return quantiles(p)[0];
+    }
+
+    /**
+     * Returns the values at several quantiles in one walk over the buckets
+     *
+     * @param ps The quantiles between 0 and 1
+     * @return The values at the quantiles, in the same order as ps
+     * @throws IllegalStateException if no values were recorded
+     */
+    public double[] quantiles(double... ps) {
+        if (count == 0) {
+            throw new IllegalStateException("Cannot calculate quantiles of an empty LogHistogram");
+        }
+        Integer[] order = new Integer[ps.length];
+        for (int i = 0; i < ps.length; i++) {
+            if (!(ps[i] >= 0 && ps[i] <= 1)) {
+                throw new IllegalArgumentException("Quantile must be between 0 and 1: " + ps[i]);
+            }
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(ps[a], ps[b]));
+
+        double[] result = new double[ps.length];
+        long cumulative = 0;
+        int index = -1;
+        for (Integer i : order) {
+            if (ps[i] == 0) {
+                result[i] = min;
+                continue;
+            }
+            long rank = Math.max(1, (long) Math.ceil(ps[i] * count));
+            while (cumulative < rank) {
+                cumulative += counts[++index];
+            }
+            result[i] = ps[i] == 1 ? max : highestEquivalentValue(index);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the fraction of values at or below x. Values in the same bucket as x count as equal to it.
+     *
+     * @param x The value to look up
+     * @return The cumulative distribution at x, between 0 and 1
+     * @throws IllegalStateException if no values were recorded
+     */
+    public double cdf(double x) {
+        if (count == 0) {
+            throw new IllegalStateException("Cannot calculate the distribution of an empty LogHistogram");
+        }
+        if (x < min) {
+            return 0;
+        }
+        if (x >= max) {
+            return 1;
+        }
+        int last = indexOf(x);
+        long below = 0;
+        for (int i = 0; i <= last; i++) {
+            below += counts[i];
+        }
+        return (double) below / count;
+    }
+
+    /**
+     * Counts the values between consecutive edges, e.g. for drawing log-scaled bins.
+     * Each bucket is assigned to a bin by its midpoint, and the last bin includes its upper edge.
+     *
+     * @param edges The bin edges in increasing order, at least two
+     * @return The count of each of the edges.length - 1 bins
+     */
+    public long[] binCounts(double[] edges) {
+        if (edges.length < 2) {
+            throw new IllegalArgumentException("At least two edges are required");
+        }
+        long[] bins = new long[edges.length - 1];
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            double midpoint = (lowestUnits(i) + widthUnits(i) / 2.0) * lowestDiscernibleValue;
+            midpoint = Math.max(min, Math.min(max, midpoint));
+            int bin = Arrays.binarySearch(edges, midpoint);
+            bin = bin >= 0 ? Math.min(bin, bins.length - 1) : -bin - 2;
+            if (bin >= 0 && bin < bins.length) {
+                bins[bin] += counts[i];
+            }
+        }
+        return bins;
+    }
+
+    /**
+     * @return The number of values recorded, including those of merged histograms
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The exact mean of the recorded values, or NaN if there are none
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * @return The smallest value recorded, or positive infinity if the histogram is empty
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return The largest value recorded, or negative infinity if the histogram is empty
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return The smallest difference between values that is kept
+     */
+    public double getLowestDiscernibleValue() {
+        return lowestDiscernibleValue;
+    }
+
+    /**
+     * @return The largest value that can be recorded
+     */
+    public double getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    /**
+     * @return The number of significant decimal digits kept for each value
+     */
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    /**
+     * @return The number of buckets, which fixes the memory at 8 bytes each
+     */
+    public int getBucketCount() {
+        return counts.length;
+    }
+
+    /**
+     * Serializes the histogram. The layout is little-endian: magic, version, significant digits,
+     * lowest discernible value, highest trackable value, sum, min, max, then the counts as
+     * zig-zag varints where a negative number is a run of that many empty buckets.
+     *
+     * @return The serialized histogram
+     */
+    public byte[] toByteArray() {
+        // A count takes at most 10 bytes and each run of empty buckets before it at most 5
+        int nonZero = 0;
+        for (long bucket : counts) {
+            if (bucket != 0) {
+                nonZero++;
+            }
+        }
+        ByteBuffer out = ByteBuffer.allocate(52 + 15 * nonZero).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(significantDigits);
+        out.putDouble(lowestDiscernibleValue);
+        out.putDouble(highestTrackableValue);
+        out.putDouble(sum);
+        out.putDouble(min);
+        out.putDouble(max);
+        int end = counts.length;
+        while (end > 0 && counts[end - 1] == 0) {
+            end--;
+        }
+        int i = 0;
+        while (i < end) {
+            if (counts[i] == 0) {
+                int run = 0;
+                while (counts[i] == 0) {
+                    run++;
+                    i++;
+                }
+                putVarint(out, -run);
+            } else {
+                putVarint(out, counts[i++]);
+            }
+        }
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    private static void putVarint(ByteBuffer out, long value) {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            out.put((byte) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        out.put((byte) zigZag);
+    }
+
+    private static long getVarint(ByteBuffer in) {
+        long zigZag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            zigZag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+        }
+        throw new IllegalArgumentException("Invalid varint in serialized LogHistogram");
+    }
+
+    /**
+     * Restores a histogram written by toByteArray
+     *
+     * @param bytes The serialized histogram
+     * @return A histogram with the same layout and counts
+     * @throws IllegalArgumentException if the bytes are not a valid histogram
+     */
+    public static LogHistogram fromByteArray(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a serialized LogHistogram");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported LogHistogram version " + version);
+            }
+            int significantDigits = in.getInt();
+            LogHistogram histogram = new LogHistogram(in.getDouble(), in.getDouble(), significantDigits);
+            histogram.sum = in.getDouble();
+            histogram.min = in.getDouble();
+            histogram.max = in.getDouble();
+            int index = 0;
+            while (in.hasRemaining()) {
+                long value = getVarint(in);
+                if (value < 0) {
+                    index = (int) Math.min(histogram.counts.length, index - value);
+                } else if (index < histogram.counts.length) {
+                    histogram.counts[index++] = value;
+                    histogram.count += value;
+                } else {
+                    throw new IllegalArgumentException("Serialized LogHistogram has more buckets than its range allows");
+                }
+            }
+            return histogram;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Serialized LogHistogram is truncated", e);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.statistics.analysis;
+
+import com.statistics.utils.CompensatedSum;
+import com.statistics.utils.DoubleArray;
+import com.statistics.utils.Kernels;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <summary>
+ * Keeps the count, sum, mean, second to fourth central moments, minimum and maximum of a stream of values.
+ * Each value is folded in with Welford's algorithm, extended to the higher moments, in O(1) time,
+ * so the moments stay current while data is appended without revisiting earlier values.
+ * The sum, and with it the mean, is kept with compensated summation so it does not drift over long streams.
+ * Arrays of values are reduced in bulk with the SIMD-capable Kernels and merged in with Chan's formulas,
+ * optionally split into chunks that are reduced on a ForkJoinPool.
+ * </summary>
+ */
+public class RunningMoments {
+    // Below this many values, the per-value update is cheaper than a bulk reduction
+    private static final int MIN_BULK_LENGTH = 64;
+    // Shorter ranges are not worth splitting across threads
+    private static final int MIN_PARALLEL_LENGTH = 1 << 18;
+    // Smallest chunk handed to a worker
+    private static final int MIN_CHUNK_LENGTH = 1 << 16;
+    // Chunks per worker, so that uneven progress still keeps every worker busy
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private long count;
+    private final CompensatedSum sum = new CompensatedSum();
+    private double mean;
+    private double m2;
+    private double m3;
+    private double m4;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Constructs an empty RunningMoments object.
+     */
+    public RunningMoments() {
+    }
+
+    /**
+     * Adds a single value.
+     *
+     * @param value The value to add
+     */
+    public void add(double value) {
+        long n1 = count;
+        count++;
+        sum.add(value);
+        double delta = value - mean;
+        double deltaN = delta / count;
+        double deltaN2 = deltaN * deltaN;
+        double term = delta * deltaN * n1;
+        mean += deltaN;
+        // Higher moments first, since they depend on the previous lower ones
+        m4 += term * deltaN2 * ((double) count * count - 3 * count + 3) + 6 * deltaN2 * m2 - 4 * deltaN * m3;
+        m3 += term * deltaN * (count - 2) - 3 * deltaN * m2;
+        m2 += term;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds values[from, from + length).
+     * Long ranges are reduced with one sum pass and one fused central-moment pass,
+     * both vectorized when the Vector API is available, and then combined with the current moments.
+     *
+     * @param values The array holding the values
+     * @param from Index of the first value to add
+     * @param length The number of values to add
+     */
+    public void addAll(double[] values, int from, int length) {
+        if (length < MIN_BULK_LENGTH) {
+            for (int i = from; i < from + length; i++) {
+                add(values[i]);
+            }
+            return;
+        }
+        double batchSum = Kernels.sum(values, from, from + length);
+        double batchMean = batchSum / length;
+        double[] moments = Kernels.centralMoments(values, from, from + length, batchMean);
+
+        RunningMoments batch = new RunningMoments();
+        batch.count = length;
+        batch.sum.add(batchSum);
+        batch.mean = batchMean;
+        batch.m2 = moments[0];
+        batch.m3 = moments[1];
+        batch.m4 = moments[2];
+        batch.min = moments[3];
+        batch.max = moments[4];
+        combine(batch);
+    }
+
+    /**
+     * Merges the moments of another set of values into this one, as if its values had been added here.
+     * Uses the pairwise update formulas of Chan et al., extended to the third and fourth moments.
+     *
+     * @param other The moments to merge in
+     */
+    public void combine(RunningMoments other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            sum.add(other.sum);
+            mean = other.mean;
+            m2 = other.m2;
+            m3 = other.m3;
+            m4 = other.m4;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        double nA = count;
+        double nB = other.count;
+        double n = nA + nB;
+        double delta = other.mean - mean;
+        double delta2 = delta * delta;
+        double newM2 = m2 + other.m2 + delta2 * nA * nB / n;
+        double newM3 = m3 + other.m3 + delta2 * delta * nA * nB * (nA - nB) / (n * n)
+                + 3 * delta * (nA * other.m2 - nB * m2) / n;
+        double newM4 = m4 + other.m4 + delta2 * delta2 * nA * nB * (nA * nA - nA * nB + nB * nB) / (n * n * n)
+                + 6 * delta2 * (nA * nA * other.m2 + nB * nB * m2) / (n * n)
+                + 4 * delta * (nA * other.m3 - nB * m3) / n;
+        count += other.count;
+        sum.add(other.sum);
+        mean += delta * nB / n;
+        m2 = newM2;
+        m3 = newM3;
+        m4 = newM4;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Adds values[from, from + length) using the workers of a ForkJoinPool. The range is split into
+     * chunks whose count, sum, central moments, min and max are computed independently and merged
+     * pairwise with the parallel variance formulas. The chunks only depend on the length and the
+     * pool's parallelism, so the result is the same on every run.
+     *
+     * @param values The array holding the values
+     * @param from Index of the first value to add
+     * @param length The number of values to add
+     * @param pool The pool whose workers reduce the chunks, or null to use the calling thread only
+     */
+    public void addAll(double[] values, int from, int length, ForkJoinPool pool) {
+        if (pool == null || pool.getParallelism() == 1 || length < MIN_PARALLEL_LENGTH) {
+            addAll(values, from, length);
+            return;
+        }
+        int chunkLength = Math.max(MIN_CHUNK_LENGTH, length / (pool.getParallelism() * CHUNKS_PER_THREAD) + 1);
+        combine(pool.invoke(new ChunkTask(values, from, from + length, chunkLength)));
+    }
+
+    /**
+     * Adds every value in the buffer.
+     *
+     * @param values The values to add
+     */
+    public void addAll(DoubleArray values) {
+        addAll(values.array(), 0, values.size());
+    }
+
+    /**
+     * Adds every value in the buffer using the workers of a ForkJoinPool.
+     *
+     * @param values The values to add
+     * @param pool The pool whose workers reduce the chunks, or null to use the calling thread only
+     */
+    public void addAll(DoubleArray values, ForkJoinPool pool) {
+        addAll(values.array(), 0, values.size(), pool);
+    }
+
+    // Moments of values[from, to), split in halves until the chunks are small enough
+    private static class ChunkTask extends RecursiveTask<RunningMoments> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+        private final int from;
+        private final int to;
+        private final int chunkLength;
+
+        ChunkTask(double[] values, int from, int to, int chunkLength) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.chunkLength = chunkLength;
+        }
+
+        @Override
+        protected RunningMoments compute() {
+            if (to - from <= chunkLength) {
+                RunningMoments moments = new RunningMoments();
+                moments.addAll(values, from, to - from);
+                return moments;
+            }
+            int mid = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(values, from, mid, chunkLength);
+            left.fork();
+            RunningMoments right = new ChunkTask(values, mid, to, chunkLength).compute();
+            RunningMoments result = left.join();
+            result.combine(right);
+            return result;
+        }
+    }
+
+    /**
+     * @return The number of values added
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The sum of the values added
+     */
+    public double getSum() {
+        return sum.getSum();
+    }
+
+    /**
+     * @return The arithmetic mean, or NaN if no values were added
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum.getSum() / count;
+    }
+
+    /**
+     * @return The sum of squared deviations from the mean
+     */
+    public double getM2() {
+        return m2;
+    }
+
+    /**
+     * @return The sum of cubed deviations from the mean
+     */
+    public double getM3() {
+        return m3;
+    }
+
+    /**
+     * @return The sum of fourth-power deviations from the mean
+     */
+    public double getM4() {
+        return m4;
+    }
+
+    /**
+     * @return The sample variance using Bessel's correction (n-1 denominator)
+     */
+    public double getVariance() {
+        return m2 / (count - 1);
+    }
+
+    /**
+     * @return The sample standard deviation
+     */
+    public double getStddev() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return The smallest value added, or positive infinity if there is none
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return The largest value added, or negative infinity if there is none
+     */
+    public double getMax() {
+        return max;
+    }
+}
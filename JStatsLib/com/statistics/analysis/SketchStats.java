@@ -0,0 +1,261 @@
+package com.statistics.analysis;
+
+import java.util.LinkedHashMap;
+import java.util.function.DoubleConsumer;
+
+/**
+ * <summary>
+ * Provides descriptive statistics for data streams too large to keep in memory.
+ * Each value is folded into running moments, which stay exact, a TDigest,
+ * which answers the median, quartiles and other quantiles approximately,
+ * a SpaceSaving summary, which estimates the mode and the most frequent values,
+ * and a HyperLogLog, which estimates the number of distinct values.
+ * Memory stays at a few tens of KB however many values are added, and the values are never stored,
+ * so statistics that need every value (moving averages) are not available.
+ * As a DoubleConsumer it can be fed directly by a FileHandler.
+ * </summary>
+ */
+public class SketchStats implements DoubleConsumer {
+    // Values are collected in batches of this size so the moments can be reduced in bulk
+    private static final int BATCH_SIZE = 4096;
+
+    private final RunningMoments moments;
+    private final TDigest digest;
+    private final SpaceSaving frequencies;
+    private final HyperLogLog distinct;
+    private final double[] batch = new double[BATCH_SIZE];
+    private int batchSize;
+    private Summary summary;
+
+    /**
+     * Constructs an empty SketchStats with a TDigest of the default compression.
+     */
+    public SketchStats() {
+        this(new TDigest());
+    }
+
+    /**
+     * Constructs a SketchStats that estimates quantiles with the given digest.
+     *
+     * @param digest An empty TDigest, whose compression sets the accuracy
+     */
+    public SketchStats(TDigest digest) {
+        if (digest == null || digest.getCount() != 0) {
+            throw new IllegalArgumentException("Digest must be empty");
+        }
+        this.moments = new RunningMoments();
+        this.digest = digest;
+        this.frequencies = new SpaceSaving();
+        this.distinct = new HyperLogLog();
+    }
+
+    /**
+     * Adds a value in amortized O(1). NaN has no place in the digest's order,
+     * so it is skipped with a message on stderr, as the file reader does for invalid values.
+     *
+     * @param value The value to add
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            System.err.println("Skipping invalid value: NaN");
+            return;
+        }
+        digest.add(value);
+        frequencies.add(value);
+        distinct.add(value);
+        if (batchSize == BATCH_SIZE) {
+            flush();
+        }
+        batch[batchSize++] = value;
+        summary = null;
+    }
+
+    // Fold the collected values into the moments
+    private void flush() {
+        moments.addAll(batch, 0, batchSize);
+        batchSize = 0;
+    }
+
+    @Override
+    public void accept(double value) {
+        add(value);
+    }
+
+    /**
+     * Adds a batch of values, skipping NaN as add does.
+     *
+     * @param values The values to add
+     */
+    public void addAll(double[] values) {
+        values = withoutNaN(values);
+        digest.addAll(values, 0, values.length);
+        frequencies.addAll(values, 0, values.length);
+        distinct.addAll(values, 0, values.length);
+        flush();
+        moments.addAll(values, 0, values.length);
+        summary = null;
+    }
+
+    // The values that are not NaN, or the array itself if there are none
+    private static double[] withoutNaN(double[] values) {
+        int kept = 0;
+        for (double value : values) {
+            if (!Double.isNaN(value)) {
+                kept++;
+            }
+        }
+        if (kept == values.length) {
+            return values;
+        }
+        double[] result = new double[kept];
+        int i = 0;
+        for (double value : values) {
+            if (Double.isNaN(value)) {
+                System.err.println("Skipping invalid value: NaN");
+            } else {
+                result[i++] = value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges the statistics of another sketch into this one, as if its values had been added here.
+     *
+     * @param other The sketch to merge
+     */
+    public void merge(SketchStats other) {
+        digest.merge(other.digest);
+        frequencies.merge(other.frequencies);
+        distinct.merge(other.distinct);
+        flush();
+        other.flush();
+        moments.combine(other.moments);
+        summary = null;
+    }
+
+    /**
+     * Returns the number of values added.
+     *
+     * @return The count of values
+     */
+    public long getCount() {
+        return digest.getCount();
+    }
+
+    /**
+     * Returns the digest the quantiles are estimated from.
+     *
+     * @return The TDigest of all values added
+     */
+    public TDigest getDigest() {
+        return digest;
+    }
+
+    /**
+     * Returns the summary the most frequent values are estimated from.
+     *
+     * @return The SpaceSaving summary of all values added
+     */
+    public SpaceSaving getFrequencies() {
+        return frequencies;
+    }
+
+    /**
+     * Estimates the mode of the data. Any value occurring in more than 1 / 256 of the data
+     * is tracked, and the result occurs at least as often as the true mode minus the error bound
+     * of the frequency summary.
+     *
+     * @return The estimated most frequent value
+     * @throws IllegalStateException if no values were added
+     */
+    public Double mode() {
+        return frequencies.mode();
+    }
+
+    /**
+     * Estimates the most frequent values and their counts.
+     *
+     * @param k The number of values to return
+     * @return Up to k values mapped to their estimated counts, from the most to the least frequent
+     */
+    public LinkedHashMap<Double, Long> topFrequencies(int k) {
+        return frequencies.topK(k);
+    }
+
+    /**
+     * Estimates the number of distinct values. Counts up to 1024 are exact;
+     * beyond that the standard error is 0.8%.
+     *
+     * @return The estimated number of distinct values
+     */
+    public long distinctCount() {
+        return distinct.estimate();
+    }
+
+    /**
+     * Returns every descriptive statistic at once. The count, mean, moments, minimum and maximum
+     * are exact; the quartiles and median are estimated by the digest.
+     * The result is cached until more values are added.
+     *
+     * @return The summary of the data
+     * @throws IllegalStateException if no values were added
+     */
+    public Summary summary() {
+        if (summary == null) {
+            flush();
+            double[] quartiles = quantiles(0.25, 0.5, 0.75);
+            summary = new Summary(moments.getCount(), moments.getSum(), moments.getMean(),
+                    moments.getM2(), moments.getM3(), moments.getM4(), moments.getMin(), moments.getMax(),
+                    quartiles[0], quartiles[1], quartiles[2]);
+        }
+        return summary;
+    }
+
+    /**
+     * Estimates the median of the data.
+     *
+     * @return The estimated median
+     * @throws IllegalStateException if no values were added
+     */
+    public double median() {
+        return quantile(0.5);
+    }
+
+    /**
+     * Estimates the first and third quartiles.
+     *
+     * @return An array containing the estimated [Q1, Q3] values
+     * @throws IllegalStateException if no values were added
+     */
+    public double[] findQuarterPercentiles() {
+        return quantiles(0.25, 0.75);
+    }
+
+    /**
+     * Estimates an arbitrary quantile, e.g. 0.99 for the 99th percentile.
+     * Tail quantiles are estimated more accurately than those near the median.
+     *
+     * @param p The quantile between 0 and 1
+     * @return The estimated quantile
+     * @throws IllegalStateException if no values were added
+     */
+    public double quantile(double p) {
+        return digest.quantile(p);
+    }
+
+    /**
+     * Estimates several quantiles.
+     *
+     * @param ps The quantiles between 0 and 1
+     * @return The estimated quantiles, in the same order as ps
+     * @throws IllegalStateException if no values were added
+     */
+    public double[] quantiles(double... ps) {
+        double[] result = new double[ps.length];
+        for (int i = 0; i < ps.length; i++) {
+            result[i] = digest.quantile(ps[i]);
+        }
+        return result;
+    }
+}
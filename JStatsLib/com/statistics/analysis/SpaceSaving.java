@@ -0,0 +1,280 @@
+package com.statistics.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleConsumer;
+
+/**
+ * <summary>
+ * SpaceSaving finds the most frequent values of a stream with a fixed number of counters
+ * (Metwally, Agrawal and El Abbadi). A value that is not tracked takes over the counter
+ * with the smallest count, inheriting that count as its possible overestimate.
+ * With capacity m over n values:
+ * every value occurring more than n / m times is tracked, and each estimated count exceeds
+ * the true count by at most getMaxError(), which never exceeds n / m.
+ * Memory is fixed by the capacity, however many distinct values the stream holds.
+ * </summary>
+ */
+public class SpaceSaving implements DoubleConsumer {
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    // Counters form a min-heap on counts, so the one to replace is always at the root
+    private final double[] items;
+    private final long[] counts;
+    private final long[] errors;
+    // Position of each tracked value in the heap
+    private final HashMap<Double, Integer> positions;
+    private int size;
+    private long total;
+
+    /**
+     * Constructs an empty SpaceSaving with 256 counters
+     */
+    public SpaceSaving() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty SpaceSaving. More counters lower the error bound n / capacity.
+     *
+     * @param capacity The number of counters, at least 1
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        items = new double[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        positions = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Counts a value in O(log capacity)
+     *
+     * @param value The value to count
+     */
+    public void add(double value) {
+        total++;
+        Integer position = positions.get(value);
+        if (position != null) {
+            counts[position]++;
+            siftDown(position);
+        } else if (size < capacity) {
+            items[size] = value;
+            counts[size] = 1;
+            errors[size] = 0;
+            positions.put(value, size);
+            siftUp(size++);
+        } else {
+            // Replace the least frequent value; its count bounds how often the new one was missed
+            positions.remove(items[0]);
+            items[0] = value;
+            errors[0] = counts[0];
+            counts[0]++;
+            positions.put(value, 0);
+            siftDown(0);
+        }
+    }
+
+    @Override
+    public void accept(double value) {
+        add(value);
+    }
+
+    /**
+     * Counts a range of values
+     *
+     * @param values The array holding the values
+     * @param from The index of the first value
+     * @param length The number of values to count
+     */
+    public void addAll(double[] values, int from, int length) {
+        if (from < 0 || length < 0 || from + length > values.length) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + (from + length) + ") out of bounds for length " + values.length);
+        }
+        for (int i = from; i < from + length; i++) {
+            add(values[i]);
+        }
+    }
+
+    /**
+     * Merges the counters of another summary into this one (Agarwal et al.).
+     * A value missing from one side is assumed to have that side's error bound as its count,
+     * so the guarantees hold for the combined stream.
+     *
+     * @param other The summary to merge, which is left unchanged
+     */
+    public void merge(SpaceSaving other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a SpaceSaving with itself");
+        }
+        long missedHere = getMaxError();
+        long missedThere = other.getMaxError();
+        HashMap<Double, long[]> merged = new HashMap<>((size + other.size) * 2);
+        for (int i = 0; i < size; i++) {
+            merged.put(items[i], new long[]{counts[i] + missedThere, errors[i] + missedThere});
+        }
+        for (int i = 0; i < other.size; i++) {
+            long[] counter = merged.get(other.items[i]);
+            if (counter != null) {
+                counter[0] += other.counts[i] - missedThere;
+                counter[1] += other.errors[i] - missedThere;
+            } else {
+                merged.put(other.items[i], new long[]{other.counts[i] + missedHere, other.errors[i] + missedHere});
+            }
+        }
+
+        // Keep the largest counters
+        List<Map.Entry<Double, long[]>> entries = new ArrayList<>(merged.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        positions.clear();
+        size = 0;
+        for (int i = 0; i < entries.size() && i < capacity; i++) {
+            items[size] = entries.get(i).getKey();
+            counts[size] = entries.get(i).getValue()[0];
+            errors[size] = entries.get(i).getValue()[1];
+            positions.put(items[size], size);
+            siftUp(size++);
+        }
+        total += other.total;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && counts[child + 1] < counts[child]) {
+                child++;
+            }
+            if (counts[position] <= counts[child]) {
+                return;
+            }
+            swap(position, child);
+            position = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double item = items[i];
+        items[i] = items[j];
+        items[j] = item;
+        long count = counts[i];
+        counts[i] = counts[j];
+        counts[j] = count;
+        long error = errors[i];
+        errors[i] = errors[j];
+        errors[j] = error;
+        positions.put(items[i], i);
+        positions.put(items[j], j);
+    }
+
+    /**
+     * Estimates how often a value occurred. The estimate is never below the true count.
+     *
+     * @param value The value to look up
+     * @return The estimated count, or the error bound if the value is not tracked
+     */
+    public long estimate(double value) {
+        Integer position = positions.get(value);
+        return position != null ? counts[position] : getMaxError();
+    }
+
+    /**
+     * Returns a count the value is guaranteed to have reached
+     *
+     * @param value The value to look up
+     * @return The estimated count minus its possible overestimate, or 0 if the value is not tracked
+     */
+    public long lowerBound(double value) {
+        Integer position = positions.get(value);
+        return position != null ? counts[position] - errors[position] : 0;
+    }
+
+    /**
+     * The largest amount by which any estimate can exceed the true count.
+     * It is 0 until every counter is in use and never more than getTotal() / getCapacity().
+     *
+     * @return The error bound of the estimates
+     */
+    public long getMaxError() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+    /**
+     * Returns the value with the highest estimated count; ties go to the smallest value.
+     * If the true mode occurs more than getTotal() / getCapacity() times, the result occurs
+     * at least as often as the true mode minus getMaxError().
+     *
+     * @return The estimated mode
+     * @throws IllegalStateException if no values were counted
+     */
+    public double mode() {
+        if (size == 0) {
+            throw new IllegalStateException("No values were counted");
+        }
+        int best = 0;
+        for (int i = 1; i < size; i++) {
+            if (counts[i] > counts[best] || (counts[i] == counts[best] && Double.compare(items[i], items[best]) < 0)) {
+                best = i;
+            }
+        }
+        return items[best];
+    }
+
+    /**
+     * Returns the most frequent values with their estimated counts
+     *
+     * @param k The number of values to return
+     * @return Up to k values mapped to their estimated counts, from the most to the least frequent
+     */
+    public LinkedHashMap<Double, Long> topK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> counts[a] != counts[b]
+                ? Long.compare(counts[b], counts[a]) : Double.compare(items[a], items[b]));
+        LinkedHashMap<Double, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < size && i < k; i++) {
+            result.put(items[order[i]], counts[order[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of values counted, including those of merged summaries
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The number of counters
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
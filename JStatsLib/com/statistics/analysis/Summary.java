@@ -0,0 +1,160 @@
+package com.statistics.analysis;
+
+/**
+ * <summary>
+ * An immutable snapshot of the descriptive statistics of a dataset: count, sum, mean,
+ * central moments, variance, standard deviation, extremes, skewness, kurtosis and quartiles.
+ * Everything is derived from one pass over the data, so reading several statistics
+ * from the same Summary does not touch the data again.
+ * </summary>
+ */
+public class Summary {
+    private final long count;
+    private final double sum;
+    private final double mean;
+    private final double m2;
+    private final double m3;
+    private final double m4;
+    private final double min;
+    private final double max;
+    private final double q1;
+    private final double median;
+    private final double q3;
+
+    /**
+     * Constructs a Summary from precomputed statistics.
+     *
+     * @param count The number of values
+     * @param sum The sum of the values
+     * @param mean The arithmetic mean
+     * @param m2 The sum of squared deviations from the mean
+     * @param m3 The sum of cubed deviations from the mean, or NaN if unknown
+     * @param m4 The sum of fourth-power deviations from the mean, or NaN if unknown
+     * @param min The smallest value
+     * @param max The largest value
+     * @param q1 The first quartile
+     * @param median The median
+     * @param q3 The third quartile
+     */
+    public Summary(long count, double sum, double mean, double m2, double m3, double m4,
+                   double min, double max, double q1, double median, double q3) {
+        this.count = count;
+        this.sum = sum;
+        this.mean = mean;
+        this.m2 = m2;
+        this.m3 = m3;
+        this.m4 = m4;
+        this.min = min;
+        this.max = max;
+        this.q1 = q1;
+        this.median = median;
+        this.q3 = q3;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return The sum of squared deviations from the mean
+     */
+    public double getM2() {
+        return m2;
+    }
+
+    /**
+     * @return The sum of cubed deviations from the mean
+     */
+    public double getM3() {
+        return m3;
+    }
+
+    /**
+     * @return The sum of fourth-power deviations from the mean
+     */
+    public double getM4() {
+        return m4;
+    }
+
+    /**
+     * @return The sample variance using Bessel's correction (n-1 denominator)
+     */
+    public double getVariance() {
+        return m2 / (count - 1);
+    }
+
+    /**
+     * @return The sample standard deviation
+     */
+    public double getStddev() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getRange() {
+        return max - min;
+    }
+
+    /**
+     * Skewness measures the asymmetry of the data around its mean.
+     *
+     * @return The population skewness g1 = sqrt(n) * M3 / M2^1.5
+     */
+    public double getSkewness() {
+        return Math.sqrt(count) * m3 / Math.pow(m2, 1.5);
+    }
+
+    /**
+     * Kurtosis measures how heavy the tails of the data are compared to a normal distribution.
+     *
+     * @return The population excess kurtosis g2 = n * M4 / M2^2 - 3
+     */
+    public double getKurtosis() {
+        return count * m4 / (m2 * m2) - 3;
+    }
+
+    public double getQ1() {
+        return q1;
+    }
+
+    public double getMedian() {
+        return median;
+    }
+
+    public double getQ3() {
+        return q3;
+    }
+
+    /**
+     * @return An array containing [Q1, Q3] values
+     */
+    public double[] getQuarterPercentiles() {
+        return new double[]{q1, q3};
+    }
+
+    public double getIqr() {
+        return q3 - q1;
+    }
+
+    @Override
+    public String toString() {
+        return "Summary[n=" + count + ", mean=" + mean + ", stddev=" + getStddev()
+                + ", min=" + min + ", q1=" + q1 + ", median=" + median + ", q3=" + q3 + ", max=" + max
+                + ", skewness=" + getSkewness() + ", kurtosis=" + getKurtosis() + "]";
+    }
+}
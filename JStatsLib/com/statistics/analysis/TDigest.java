@@ -0,0 +1,317 @@
+package com.statistics.analysis;
+
+import java.util.Arrays;
+
+/**
+ * <summary>
+ * TDigest is a streaming quantile sketch (Dunning's merging t-digest).
+ * Values are summarized by a sorted list of centroids, each a mean with a weight.
+ * Centroids near the median may hold many values while those near the tails stay small,
+ * so extreme quantiles like p99 or p999 remain accurate. Memory is bounded by the
+ * compression parameter, not by the number of values: about 100 centroids plus a fixed
+ * buffer, about 32 KB by default, however many values are added. Digests built on separate
+ * parts of the data can be merged.
+ * </summary>
+ */
+public class TDigest {
+    private static final double DEFAULT_COMPRESSION = 100;
+    // Incoming values are buffered and merged in sorted batches of this many times the compression
+    private static final int BUFFER_FACTOR = 5;
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroidCount;
+    private double[] buffer;
+    private int bufferSize;
+    // Reused by flush to hold the centroids and buffered values in merged order
+    private double[] mergedMeans;
+    private double[] mergedWeights;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Constructs an empty TDigest with the default compression of 100
+     */
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructs an empty TDigest. Higher compression keeps more centroids,
+     * which costs memory and time but makes quantiles more accurate.
+     *
+     * @param compression The compression parameter, at least 10
+     */
+    public TDigest(double compression) {
+        if (!(compression >= 10)) {
+            throw new IllegalArgumentException("Compression must be at least 10");
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(2 * compression) + 8;
+        means = new double[capacity];
+        weights = new double[capacity];
+        buffer = new double[BUFFER_FACTOR * capacity];
+        mergedMeans = new double[capacity + buffer.length];
+        mergedWeights = new double[mergedMeans.length];
+    }
+
+    /**
+     * Adds a value to the digest in amortized O(1)
+     *
+     * @param value The value to add
+     * @throws IllegalArgumentException if the value is NaN
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot add NaN to a TDigest");
+        }
+        if (bufferSize == buffer.length) {
+            flush();
+        }
+        buffer[bufferSize++] = value;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds a range of values to the digest
+     *
+     * @param values The array holding the values
+     * @param from The index of the first value
+     * @param length The number of values to add
+     */
+    public void addAll(double[] values, int from, int length) {
+        if (from < 0 || length < 0 || from + length > values.length) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + (from + length) + ") out of bounds for length " + values.length);
+        }
+        for (int i = from; i < from + length; i++) {
+            add(values[i]);
+        }
+    }
+
+    /**
+     * Merges another digest into this one, as if its values had been added here.
+     * The other digest is left unchanged apart from flushing its buffer.
+     *
+     * @param other The digest to merge
+     */
+    public void merge(TDigest other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a TDigest with itself");
+        }
+        other.flush();
+        if (other.count == 0) {
+            return;
+        }
+        flush();
+
+        // Both centroid lists are sorted by mean, so a single merge pass orders them
+        int total = centroidCount + other.centroidCount;
+        double[] combinedMeans = new double[total];
+        double[] combinedWeights = new double[total];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < total; k++) {
+            if (j == other.centroidCount || (i < centroidCount && means[i] <= other.means[j])) {
+                combinedMeans[k] = means[i];
+                combinedWeights[k] = weights[i++];
+            } else {
+                combinedMeans[k] = other.means[j];
+                combinedWeights[k] = other.weights[j++];
+            }
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        compress(combinedMeans, combinedWeights, total);
+    }
+
+    // Sort the buffered values and merge them into the centroids
+    private void flush() {
+        if (bufferSize == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, bufferSize);
+        int total = centroidCount + bufferSize;
+        if (total > mergedMeans.length) {
+            mergedMeans = new double[total];
+            mergedWeights = new double[total];
+        }
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < total; k++) {
+            if (j == bufferSize || (i < centroidCount && means[i] <= buffer[j])) {
+                mergedMeans[k] = means[i];
+                mergedWeights[k] = weights[i++];
+            } else {
+                mergedMeans[k] = buffer[j++];
+                mergedWeights[k] = 1;
+            }
+        }
+        bufferSize = 0;
+        compress(mergedMeans, mergedWeights, total);
+    }
+
+    // Greedily merge neighbours while each centroid spans at most one unit of the scale function
+    private void compress(double[] sortedMeans, double[] sortedWeights, int length) {
+        double totalWeight = count;
+        int out = 0;
+        double weightSoFar = 0;
+        double mean = sortedMeans[0];
+        double weight = sortedWeights[0];
+        double weightLimit = totalWeight * quantileLimit(0);
+
+        for (int i = 1; i < length; i++) {
+            double proposed = weight + sortedWeights[i];
+            if (weightSoFar + proposed <= weightLimit) {
+                weight = proposed;
+                mean += (sortedMeans[i] - mean) * sortedWeights[i] / weight;
+            } else {
+                out = emit(out, mean, weight);
+                weightSoFar += weight;
+                weightLimit = totalWeight * quantileLimit(weightSoFar / totalWeight);
+                mean = sortedMeans[i];
+                weight = sortedWeights[i];
+            }
+        }
+        centroidCount = emit(out, mean, weight);
+    }
+
+    private int emit(int index, double mean, double weight) {
+        if (index == means.length) {
+            means = Arrays.copyOf(means, index + (index >> 1) + 1);
+            weights = Arrays.copyOf(weights, means.length);
+        }
+        means[index] = mean;
+        weights[index] = weight;
+        return index + 1;
+    }
+
+    // The largest quantile a centroid starting at q may reach. Centroids may span one unit of both
+    // k1(q) = compression / (2 pi) * asin(2q - 1), which keeps those near the median small,
+    // and k2(q) = compression / z * log(q / (1 - q)), which lets them shrink geometrically toward the tails
+    private double quantileLimit(double q) {
+        if (q <= 0) {
+            return 0;
+        }
+        double k1 = Math.asin(2 * q - 1) + 2 * Math.PI / compression;
+        double limit1 = k1 >= Math.PI / 2 ? 1 : (Math.sin(k1) + 1) / 2;
+        double z = 4 * Math.log(Math.max(count / compression, 1)) + 24;
+        double odds = q / (1 - q) * Math.exp(z / compression);
+        return Math.min(limit1, odds / (1 + odds));
+    }
+
+    /**
+     * Estimates a quantile. Centroids are treated as points at their mean and the result
+     * is interpolated between them, so a digest of few values gives the same result
+     * as the exact linear interpolation used by BasicStats.
+     *
+     * @param p The quantile between 0 and 1
+     * @return The estimated value below which a fraction p of the values lie
+     * @throws IllegalStateException if the digest is empty
+     */
+    public double quantile(double p) {
+        if (!(p >= 0 && p <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + p);
+        }
+        flush();
+        if (count == 0) {
+            throw new IllegalStateException("Cannot calculate quantiles of an empty TDigest");
+        }
+        // Rank of each centroid's center counted from the smallest value, so unit weights sit at 0, 1, 2, ...
+        double index = p * (count - 1);
+        double center = weights[0] / 2 - 0.5;
+        if (index <= center) {
+            return center == 0 ? means[0] : interpolate(min, means[0], index / center);
+        }
+        for (int i = 0; i < centroidCount - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (center + step > index) {
+                return interpolate(means[i], means[i + 1], (index - center) / step);
+            }
+            center += step;
+        }
+        // The last centroid's values reach from its center up to the maximum
+        double tail = count - 1 - center;
+        if (tail <= 0) {
+            return means[centroidCount - 1];
+        }
+        return interpolate(means[centroidCount - 1], max, Math.min(1, (index - center) / tail));
+    }
+
+    /**
+     * Estimates the fraction of values less than or equal to x
+     *
+     * @param x The value to look up
+     * @return The estimated cumulative distribution at x, between 0 and 1
+     * @throws IllegalStateException if the digest is empty
+     */
+    public double cdf(double x) {
+        flush();
+        if (count == 0) {
+            throw new IllegalStateException("Cannot calculate the distribution of an empty TDigest");
+        }
+        if (x < min) {
+            return 0;
+        }
+        if (x >= max) {
+            return 1;
+        }
+        if (x < means[0]) {
+            return weights[0] / 2 * (x - min) / (means[0] - min) / count;
+        }
+        double weightSoFar = weights[0] / 2;
+        for (int i = 0; i < centroidCount - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (x < means[i + 1]) {
+                return (weightSoFar + step * (x - means[i]) / (means[i + 1] - means[i])) / count;
+            }
+            weightSoFar += step;
+        }
+        double last = weights[centroidCount - 1] / 2;
+        return (weightSoFar + last * (x - means[centroidCount - 1]) / (max - means[centroidCount - 1])) / count;
+    }
+
+    private static double interpolate(double from, double to, double fraction) {
+        return from + fraction * (to - from);
+    }
+
+    /**
+     * @return The number of values added, including those of merged digests
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The smallest value added, or positive infinity if the digest is empty
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return The largest value added, or negative infinity if the digest is empty
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return The compression parameter
+     */
+    public double getCompression() {
+        return compression;
+    }
+
+    /**
+     * @return The number of centroids after merging any buffered values
+     */
+    public int centroidCount() {
+        flush();
+        return centroidCount;
+    }
+}
@@ -0,0 +1,334 @@
+package com.statistics.analysis;
+
+import com.statistics.utils.QuantileSelector;
+import com.statistics.utils.RBTree;
+import java.time.Duration;
+import java.util.function.DoubleConsumer;
+
+/**
+ * <summary>
+ * Keeps statistics over a sliding window of a stream: the last N values, the values of the last
+ * T milliseconds, or whichever is smaller when both limits are set. Values are held in arrival order
+ * in a ring buffer, so the oldest is evicted in O(1), and in an order-statistic Red-Black Tree,
+ * so median and percentiles are answered in O(log w) for a window of w values.
+ * The mean and variance are updated in O(1) on every insert and eviction with Welford's formulas;
+ * the rounding error removals leave behind is cleared by recomputing them each time the window turns over.
+ * Time-based windows use the timestamps given to add, or the system clock, and only move when a value
+ * is added or advanceTo is called.
+ * </summary>
+ */
+public class WindowStats implements DoubleConsumer {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int maxCount;
+    private final long maxAge;
+    private final RBTree tree = new RBTree();
+    // Ring buffer of the window in arrival order, with the timestamps of time-based windows
+    private double[] values;
+    private long[] times;
+    private int head;
+    private int count;
+    private long lastTime = Long.MIN_VALUE;
+    private double mean;
+    private double m2;
+    private int removalsSinceRecompute;
+
+    /**
+     * Constructs a window of the last maxCount values.
+     *
+     * @param maxCount The number of values in a full window, at least 1
+     */
+    public WindowStats(int maxCount) {
+        this(maxCount, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a window of the values added within maxAge of the latest timestamp.
+     *
+     * @param maxAge How long a value stays in the window, at least 1 ms
+     */
+    public WindowStats(Duration maxAge) {
+        this(Integer.MAX_VALUE, toMillis(maxAge));
+    }
+
+    /**
+     * Constructs a window of at most maxCount values added within maxAge of the latest timestamp.
+     *
+     * @param maxCount The largest number of values in the window, at least 1
+     * @param maxAge How long a value stays in the window, at least 1 ms
+     */
+    public WindowStats(int maxCount, Duration maxAge) {
+        this(maxCount, toMillis(maxAge));
+    }
+
+    private WindowStats(int maxCount, long maxAge) {
+        if (maxCount < 1) {
+            throw new IllegalArgumentException("Window size must be at least 1");
+        }
+        this.maxCount = maxCount;
+        this.maxAge = maxAge;
+        values = new double[Math.min(maxCount, INITIAL_CAPACITY)];
+        times = isTimed() ? new long[values.length] : null;
+    }
+
+    private static long toMillis(Duration maxAge) {
+        if (maxAge == null || maxAge.toMillis() < 1) {
+            throw new IllegalArgumentException("Window duration must be at least 1 ms");
+        }
+        return maxAge.toMillis();
+    }
+
+    private boolean isTimed() {
+        return maxAge != Long.MAX_VALUE;
+    }
+
+    /**
+     * Adds a value, stamped with the system clock for time-based windows, and evicts the values
+     * that fall out of the window, in O(log w).
+     *
+     * @param value The value to add
+     * @throws IllegalArgumentException if the value is NaN
+     */
+    public void add(double value) {
+        add(value, isTimed() ? System.currentTimeMillis() : lastTime);
+    }
+
+    @Override
+    public void accept(double value) {
+        add(value);
+    }
+
+    /**
+     * Adds a value with its timestamp and evicts the values that fall out of the window, in O(log w).
+     * Count-only windows ignore the timestamp.
+     *
+     * @param value The value to add
+     * @param timestamp The time of the value in milliseconds, not before the previous one
+     * @throws IllegalArgumentException if the value is NaN or the timestamp goes backwards
+     */
+    public void add(double value, long timestamp) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot add NaN to a window");
+        }
+        advanceTo(timestamp);
+        if (count == maxCount) {
+            evictOldest();
+        }
+        if (count == values.length) {
+            grow();
+        }
+        int tail = (head + count) % values.length;
+        values[tail] = value;
+        if (times != null) {
+            times[tail] = timestamp;
+        }
+        count++;
+        tree.insert(value);
+
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    /**
+     * Moves the clock of a time-based window forward, evicting the values older than the window.
+     * Call it before reading statistics when the stream may have paused.
+     *
+     * @param timestamp The current time in milliseconds, not before the previous one
+     * @throws IllegalArgumentException if the timestamp goes backwards
+     */
+    public void advanceTo(long timestamp) {
+        if (!isTimed()) {
+            return;
+        }
+        if (timestamp < lastTime) {
+            throw new IllegalArgumentException("Timestamp " + timestamp + " is before the previous one, " + lastTime);
+        }
+        lastTime = timestamp;
+        while (count > 0 && timestamp - times[head] >= maxAge) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        double value = values[head];
+        head = (head + 1) % values.length;
+        count--;
+        tree.remove(value);
+
+        if (count == 0) {
+            mean = 0;
+            m2 = 0;
+            removalsSinceRecompute = 0;
+        } else if (++removalsSinceRecompute >= count) {
+            recomputeMoments();
+        } else {
+            double delta = value - mean;
+            mean -= delta / count;
+            m2 -= delta * (value - mean);
+        }
+    }
+
+    // Two passes over the window, once every value has been replaced, so errors of the updates cannot accumulate
+    private void recomputeMoments() {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[(head + i) % values.length];
+        }
+        mean = sum / count;
+        m2 = 0;
+        for (int i = 0; i < count; i++) {
+            double delta = values[(head + i) % values.length] - mean;
+            m2 += delta * delta;
+        }
+        removalsSinceRecompute = 0;
+    }
+
+    // Double the ring buffer up to the window size, unrolling it to start at index 0
+    private void grow() {
+        int capacity = (int) Math.min(maxCount, 2L * values.length);
+        double[] grownValues = new double[capacity];
+        long[] grownTimes = times != null ? new long[capacity] : null;
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) % values.length;
+            grownValues[i] = values[index];
+            if (times != null) {
+                grownTimes[i] = times[index];
+            }
+        }
+        values = grownValues;
+        times = grownTimes;
+        head = 0;
+    }
+
+    /**
+     * Removes every value from the window.
+     */
+    public void clear() {
+        while (count > 0) {
+            evictOldest();
+        }
+    }
+
+    /**
+     * @return The number of values in the window
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return The mean of the window, or NaN if it is empty
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * @return The sum of the window
+     */
+    public double getSum() {
+        return mean * count;
+    }
+
+    /**
+     * @return The sample variance of the window using Bessel's correction (n-1 denominator)
+     */
+    public double getVariance() {
+        return Math.max(0, m2) / (count - 1);
+    }
+
+    /**
+     * @return The sample standard deviation of the window
+     */
+    public double getStddev() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Returns the smallest value in the window in O(log w).
+     *
+     * @return The minimum
+     * @throws IllegalStateException if the window is empty
+     */
+    public double getMin() {
+        checkNotEmpty();
+        return tree.select(0);
+    }
+
+    /**
+     * Returns the largest value in the window in O(log w).
+     *
+     * @return The maximum
+     * @throws IllegalStateException if the window is empty
+     */
+    public double getMax() {
+        checkNotEmpty();
+        return tree.select(count - 1);
+    }
+
+    /**
+     * Calculates the median of the window in O(log w).
+     *
+     * @return The median
+     * @throws IllegalStateException if the window is empty
+     */
+    public double median() {
+        return quantile(0.5);
+    }
+
+    /**
+     * Calculates a quantile of the window in O(log w), interpolating between ranks as BasicStats does.
+     *
+     * @param p The quantile between 0 and 1
+     * @return The quantile
+     * @throws IllegalStateException if the window is empty
+     */
+    public double quantile(double p) {
+        return quantiles(p)[0];
+    }
+
+    /**
+     * Calculates several quantiles of the window, each in O(log w).
+     *
+     * @param ps The quantiles between 0 and 1
+     * @return The quantiles, in the same order as ps
+     * @throws IllegalStateException if the window is empty
+     */
+    public double[] quantiles(double... ps) {
+        checkNotEmpty();
+        int[] ranks = QuantileSelector.quantileRanks(count, ps);
+        return QuantileSelector.interpolate(count, ps, tree.selectAll(ranks));
+    }
+
+    private void checkNotEmpty() {
+        if (count == 0) {
+            throw new IllegalStateException("The window is empty");
+        }
+    }
+
+    /**
+     * @return A copy of the window in arrival order, oldest first
+     */
+    public double[] toArray() {
+        double[] result = new double[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = values[(head + i) % values.length];
+        }
+        return result;
+    }
+
+    /**
+     * @return The largest number of values the window holds
+     */
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * @return How long a value stays in the window, or null for a count-only window
+     */
+    public Duration getMaxAge() {
+        return isTimed() ? Duration.ofMillis(maxAge) : null;
+    }
+}
@@ -0,0 +1,534 @@
+package com.statistics.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * <summary>
+ * BinaryDataset stores a dataset on disk as sorted little-endian doubles and reads it back memory-mapped.
+ * A fixed header carries precomputed summary statistics, so they are available without touching the data.
+ * Values are only paged in from disk when they are actually read.
+ * Inserting into an opened dataset copies it into a SortedColumn first; the header is stale from then on.
+ * </summary>
+ *
+ * File layout (little-endian):
+ * <pre>
+ *  0  magic "JSTB"           4  version (int)       8  flags (int)      12  reserved (int)
+ * 16  count (long)          24  distinct (long)    32  sum             40  sum of squares
+ * 48  sum of squared deviations from the mean      56  min             64  max
+ * 72  first quartile        80  median             88  third quartile
+ * 96  sum of cubed deviations                     104  sum of fourth-power deviations
+ * 112 data: count doubles, or with run-length encoding distinct doubles followed by distinct int counts
+ * </pre>
+ */
+public class BinaryDataset implements DataStore {
+    private static final int MAGIC = 0x4A535442; // "JSTB"
+    private static final int VERSION = 1;
+    private static final int FLAG_RUN_LENGTH = 1;
+    private static final int HEADER_SIZE = 112;
+    // Values per mapped segment, so that each segment stays below 2 GB
+    private static final int SEGMENT_SHIFT = 27;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final int count;
+    private final int distinct;
+    private final double sum;
+    private final double sumOfSquares;
+    private final double sumOfSquaredDeviations;
+    private final double min;
+    private final double max;
+    private final double q1;
+    private final double median;
+    private final double q3;
+    private final double sumOfCubedDeviations;
+    private final double sumOfFourthPowerDeviations;
+
+    private final DoubleBuffer[] values;
+    private final IntBuffer[] counts;
+    // Number of values before each distinct value, built on first use for run-length files
+    private long[] cumulativeCounts;
+    // Heap copy of the data once it has been modified
+    private SortedColumn copy;
+
+    private BinaryDataset(ByteBuffer header, DoubleBuffer[] values, IntBuffer[] counts) {
+        this.count = (int) header.getLong(16);
+        this.distinct = (int) header.getLong(24);
+        this.sum = header.getDouble(32);
+        this.sumOfSquares = header.getDouble(40);
+        this.sumOfSquaredDeviations = header.getDouble(48);
+        this.min = header.getDouble(56);
+        this.max = header.getDouble(64);
+        this.q1 = header.getDouble(72);
+        this.median = header.getDouble(80);
+        this.q3 = header.getDouble(88);
+        this.sumOfCubedDeviations = header.getDouble(96);
+        this.sumOfFourthPowerDeviations = header.getDouble(104);
+        this.values = values;
+        this.counts = counts;
+    }
+
+    /**
+     * Write the contents of a data store to a binary dataset file
+     * @param store the data to write
+     * @param path the file to create or overwrite
+     * @param runLengthEncoded true to store each distinct value once with its count
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(DataStore store, String path, boolean runLengthEncoded) throws IOException {
+        double[] sorted = store.toSortedArray();
+        int n = sorted.length;
+
+        // Summary statistics for the header, with compensated sums so large files keep every digit
+        CompensatedSum sumOfSquares = new CompensatedSum();
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            sumOfSquares.add(sorted[i] * sorted[i]);
+            if (i == 0 || Double.compare(sorted[i - 1], sorted[i]) != 0) {
+                distinct++;
+            }
+        }
+        double sum = Summation.compensatedSum(sorted, 0, n);
+        double mean = n > 0 ? sum / n : Double.NaN;
+        CompensatedSum sumOfSquaredDeviations = new CompensatedSum();
+        CompensatedSum sumOfCubedDeviations = new CompensatedSum();
+        CompensatedSum sumOfFourthPowerDeviations = new CompensatedSum();
+        for (int i = 0; i < n; i++) {
+            double deviation = sorted[i] - mean;
+            double squared = deviation * deviation;
+            sumOfSquaredDeviations.add(squared);
+            sumOfCubedDeviations.add(squared * deviation);
+            sumOfFourthPowerDeviations.add(squared * squared);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(runLengthEncoded ? FLAG_RUN_LENGTH : 0);
+        header.putInt(0);
+        header.putLong(n);
+        header.putLong(distinct);
+        header.putDouble(sum);
+        header.putDouble(sumOfSquares.getSum());
+        header.putDouble(sumOfSquaredDeviations.getSum());
+        header.putDouble(n > 0 ? sorted[0] : Double.NaN);
+        header.putDouble(n > 0 ? sorted[n - 1] : Double.NaN);
+        header.putDouble(percentile(sorted, 0.25));
+        header.putDouble(percentile(sorted, 0.5));
+        header.putDouble(percentile(sorted, 0.75));
+        header.putDouble(sumOfCubedDeviations.getSum());
+        header.putDouble(sumOfFourthPowerDeviations.getSum());
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            if (!runLengthEncoded) {
+                for (int i = 0; i < n; i++) {
+                    if (out.remaining() < Double.BYTES) {
+                        flush(channel, out);
+                    }
+                    out.putDouble(sorted[i]);
+                }
+            } else {
+                // Distinct values first, then their counts
+                for (int i = 0; i < n; i++) {
+                    if (i == 0 || Double.compare(sorted[i - 1], sorted[i]) != 0) {
+                        if (out.remaining() < Double.BYTES) {
+                            flush(channel, out);
+                        }
+                        out.putDouble(sorted[i]);
+                    }
+                }
+                int i = 0;
+                while (i < n) {
+                    int runEnd = i + 1;
+                    while (runEnd < n && Double.compare(sorted[runEnd], sorted[i]) == 0) {
+                        runEnd++;
+                    }
+                    if (out.remaining() < Integer.BYTES) {
+                        flush(channel, out);
+                    }
+                    out.putInt(runEnd - i);
+                    i = runEnd;
+                }
+            }
+            flush(channel, out);
+        }
+    }
+
+    // Same linear interpolation as BasicStats.findQuarterPercentiles
+    private static double percentile(double[] sorted, double p) {
+        int n = sorted.length;
+        if (n == 0) {
+            return Double.NaN;
+        }
+        if (p == 0.5) {
+            return n % 2 == 0 ? (sorted[n / 2 - 1] + sorted[n / 2]) / 2 : sorted[n / 2];
+        }
+        double index = p * (n - 1);
+        int idx = (int) index;
+        double fraction = index - idx;
+        if (idx >= n - 1) {
+            return sorted[n - 1];
+        }
+        return sorted[idx] + fraction * (sorted[idx + 1] - sorted[idx]);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        writeFully(channel, out);
+        out.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Open a binary dataset file. The data is memory-mapped, not read;
+     * only the run lengths of a run-length file are scanned to check them against the header.
+     * @param path the file to open
+     * @return the opened dataset
+     * @throws IOException if the file cannot be read or is not a binary dataset
+     */
+    public static BinaryDataset open(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, path);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a binary dataset");
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary dataset version " + version);
+            }
+            long count = header.getLong(16);
+            long distinct = header.getLong(24);
+            if (count < 0 || count > Integer.MAX_VALUE || distinct < 0 || distinct > count) {
+                throw new IOException(path + " has an invalid value count");
+            }
+
+            boolean runLength = (header.getInt(8) & FLAG_RUN_LENGTH) != 0;
+            long valueCount = runLength ? distinct : count;
+            long expectedSize = HEADER_SIZE + valueCount * Double.BYTES + (runLength ? distinct * Integer.BYTES : 0);
+            if (channel.size() < expectedSize) {
+                throw new IOException(path + " is truncated");
+            }
+
+            DoubleBuffer[] values = new DoubleBuffer[segmentCount(valueCount)];
+            for (int s = 0; s < values.length; s++) {
+                long first = (long) s << SEGMENT_SHIFT;
+                long length = Math.min(1L << SEGMENT_SHIFT, valueCount - first);
+                values[s] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * Double.BYTES, length * Double.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+
+            IntBuffer[] counts = null;
+            if (runLength) {
+                long countsOffset = HEADER_SIZE + distinct * Double.BYTES;
+                counts = new IntBuffer[segmentCount(distinct)];
+                for (int s = 0; s < counts.length; s++) {
+                    long first = (long) s << SEGMENT_SHIFT;
+                    long length = Math.min(1L << SEGMENT_SHIFT, distinct - first);
+                    counts[s] = channel.map(FileChannel.MapMode.READ_ONLY, countsOffset + first * Integer.BYTES, length * Integer.BYTES)
+                            .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                }
+                checkCounts(counts, count, path);
+            }
+            return new BinaryDataset(header, values, counts);
+        }
+    }
+
+    // Every run-length count must be positive and together they must add up to the header's count
+    private static void checkCounts(IntBuffer[] counts, long count, String path) throws IOException {
+        long total = 0;
+        for (IntBuffer segment : counts) {
+            for (int i = 0; i < segment.limit(); i++) {
+                int runLength = segment.get(i);
+                if (runLength <= 0) {
+                    throw new IOException(path + " has an invalid run length " + runLength);
+                }
+                total += runLength;
+            }
+        }
+        if (total != count) {
+            throw new IOException(path + " has run lengths adding up to " + total + " instead of " + count);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer header, String path) throws IOException {
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) {
+                throw new IOException(path + " is not a binary dataset: header is truncated");
+            }
+        }
+    }
+
+    private static int segmentCount(long length) {
+        return (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    }
+
+    // Entry i of the mapped values, which are distinct values for run-length files
+    private double valueAt(int i) {
+        return values[i >>> SEGMENT_SHIFT].get(i & SEGMENT_MASK);
+    }
+
+    private int countAt(int i) {
+        return counts[i >>> SEGMENT_SHIFT].get(i & SEGMENT_MASK);
+    }
+
+    private int entryCount() {
+        return counts == null ? count : distinct;
+    }
+
+    private long[] cumulativeCounts() {
+        if (cumulativeCounts == null) {
+            long[] cumulative = new long[distinct + 1];
+            for (int i = 0; i < distinct; i++) {
+                cumulative[i + 1] = cumulative[i] + countAt(i);
+            }
+            cumulativeCounts = cumulative;
+        }
+        return cumulativeCounts;
+    }
+
+    // Index of the first entry that is not smaller than key
+    private int lowerBound(double key) {
+        int low = 0;
+        int high = entryCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(valueAt(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Copy the mapped data to the heap before the first modification
+    private SortedColumn modifiableCopy() {
+        if (copy == null) {
+            SortedColumn column = new SortedColumn(count);
+            double[] sorted = toSortedArray();
+            column.insertSorted(sorted, sorted.length);
+            copy = column;
+        }
+        return copy;
+    }
+
+    /**
+     * @return true once values have been inserted, after which the header statistics no longer apply
+     */
+    public boolean isModified() {
+        return copy != null;
+    }
+
+    @Override
+    public void insert(double key) {
+        modifiableCopy().insert(key);
+    }
+
+    @Override
+    public void insertSorted(double[] sorted, int length) {
+        modifiableCopy().insertSorted(sorted, length);
+    }
+
+    @Override
+    public boolean contains(double key) {
+        if (copy != null) {
+            return copy.contains(key);
+        }
+        int index = lowerBound(key);
+        return index < entryCount() && Double.compare(valueAt(index), key) == 0;
+    }
+
+    @Override
+    public int getSize() {
+        return copy != null ? copy.getSize() : count;
+    }
+
+    @Override
+    public long getVersion() {
+        // The mapped file never changes, only the copy does
+        return copy != null ? copy.getVersion() : 0;
+    }
+
+    @Override
+    public double select(int k) {
+        if (copy != null) {
+            return copy.select(k);
+        }
+        if (k < 0 || k >= count) {
+            throw new IndexOutOfBoundsException("Index " + k + " out of bounds for size " + count);
+        }
+        if (counts == null) {
+            return valueAt(k);
+        }
+        // Last distinct value with fewer than k + 1 values before it
+        long[] cumulative = cumulativeCounts();
+        int low = 0;
+        int high = distinct - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (cumulative[mid] <= k) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return valueAt(low);
+    }
+
+    @Override
+    public int rank(double key) {
+        if (copy != null) {
+            return copy.rank(key);
+        }
+        int index = lowerBound(key);
+        return counts == null ? index : (int) cumulativeCounts()[index];
+    }
+
+    @Override
+    public ArrayList<Double> toArrayList() {
+        if (copy != null) {
+            return copy.toArrayList();
+        }
+        ArrayList<Double> result = new ArrayList<>(count);
+        for (double value : toSortedArray()) {
+            result.add(value);
+        }
+        return result;
+    }
+
+    @Override
+    public FrequencyTable toFrequencyTable() {
+        if (copy != null) {
+            return copy.toFrequencyTable();
+        }
+        // Size the table by the runs in the data rather than trusting the header's distinct count
+        int runs = entryCount() > 0 ? 1 : 0;
+        for (int i = 1; i < entryCount(); i++) {
+            if (Double.compare(valueAt(i - 1), valueAt(i)) != 0) {
+                runs++;
+            }
+        }
+        double[] distinctValues = new double[runs];
+        int[] distinctCounts = new int[runs];
+        int entry = -1;
+        for (int i = 0; i < entryCount(); i++) {
+            double value = valueAt(i);
+            if (entry < 0 || Double.compare(distinctValues[entry], value) != 0) {
+                distinctValues[++entry] = value;
+            }
+            distinctCounts[entry] += counts == null ? 1 : countAt(i);
+        }
+        return new FrequencyTable(distinctValues, distinctCounts, entry + 1);
+    }
+
+    @Override
+    public double[] toSortedArray() {
+        if (copy != null) {
+            return copy.toSortedArray();
+        }
+        double[] result = new double[count];
+        if (counts == null) {
+            int offset = 0;
+            for (DoubleBuffer segment : values) {
+                DoubleBuffer view = segment.duplicate();
+                int length = view.remaining();
+                view.get(result, offset, length);
+                offset += length;
+            }
+        } else {
+            int index = 0;
+            for (int i = 0; i < distinct; i++) {
+                double value = valueAt(i);
+                for (int c = countAt(i); c > 0; c--) {
+                    result[index++] = value;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Header statistics, valid while isModified() is false
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public int getDistinctCount() {
+        return copy != null ? copy.getDistinctCount() : distinct;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getSumOfSquares() {
+        return sumOfSquares;
+    }
+
+    public double getMean() {
+        return sum / count;
+    }
+
+    public double getSumOfSquaredDeviations() {
+        return sumOfSquaredDeviations;
+    }
+
+    /**
+     * @return the sum of cubed deviations from the mean
+     */
+    public double getSumOfCubedDeviations() {
+        return sumOfCubedDeviations;
+    }
+
+    /**
+     * @return the sum of fourth-power deviations from the mean
+     */
+    public double getSumOfFourthPowerDeviations() {
+        return sumOfFourthPowerDeviations;
+    }
+
+    /**
+     * @return the sample variance (n - 1 denominator) stored in the header
+     */
+    public double getVariance() {
+        return sumOfSquaredDeviations / (count - 1);
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return the first and third quartiles as [Q1, Q3]
+     */
+    public double[] getQuarterPercentiles() {
+        return new double[]{q1, q3};
+    }
+
+    public double getMedian() {
+        return median;
+    }
+}
@@ -0,0 +1,67 @@
+package com.statistics.utils;
+
+/**
+ * <summary>
+ * CompensatedSum is a running sum that tracks the rounding error of every addition
+ * (Neumaier's improvement of Kahan summation). The error of the result stays close to
+ * a single rounding no matter how many values are added or in which order, which keeps
+ * long running totals and sliding-window sums from drifting.
+ * </summary>
+ */
+public class CompensatedSum {
+    private double sum;
+    // Low-order bits lost by the additions so far
+    private double compensation;
+
+    /**
+     * Constructs a new sum of zero
+     */
+    public CompensatedSum() {
+    }
+
+    /**
+     * Adds a value to the sum
+     * @param value the value to add
+     */
+    public void add(double value) {
+        double t = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            compensation += (sum - t) + value;
+        } else {
+            compensation += (value - t) + sum;
+        }
+        sum = t;
+    }
+
+    /**
+     * Subtracts a value from the sum, e.g. when it leaves a sliding window
+     * @param value the value to subtract
+     */
+    public void subtract(double value) {
+        add(-value);
+    }
+
+    /**
+     * Adds another compensated sum to this one, keeping both error terms
+     * @param other the sum to add
+     */
+    public void add(CompensatedSum other) {
+        add(other.sum);
+        add(other.compensation);
+    }
+
+    /**
+     * @return the corrected sum
+     */
+    public double getSum() {
+        return sum + compensation;
+    }
+
+    /**
+     * Resets the sum to zero
+     */
+    public void clear() {
+        sum = 0;
+        compensation = 0;
+    }
+}
@@ -0,0 +1,132 @@
+package com.statistics.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * <summary>
+ * DataStore is the storage backing a dataset.
+ * Implementations keep values retrievable in ascending order so that
+ * statistics can be computed directly on top of them.
+ * </summary>
+ */
+public interface DataStore {
+
+    /**
+     * Inserts a value into the store
+     * @param key the value to insert
+     */
+    void insert(double key);
+
+    /**
+     * Inserts many values at once. This is much faster than calling insert for each value.
+     * @param sorted values in ascending order
+     * @param length the number of values to take from the start of the array
+     * @throws IllegalArgumentException if the values are not in ascending order
+     */
+    void insertSorted(double[] sorted, int length);
+
+    /**
+     * Inserts many values in any order. The default sorts the values in place, in parallel
+     * for large batches, and calls insertSorted; stores that can defer ordering keep them as they are.
+     * @param values the values to insert, which may be reordered by the call
+     * @param length the number of values to take from the start of the array
+     */
+    default void insertAll(double[] values, int length) {
+        if (length < 0 || length > values.length) {
+            throw new IllegalArgumentException("Length must be between 0 and " + values.length);
+        }
+        sort(values, length);
+        insertSorted(values, length);
+    }
+
+    // Below 64K values a sequential sort is faster than splitting the work
+    private static void sort(double[] values, int length) {
+        if (length >= 1 << 16) {
+            Arrays.parallelSort(values, 0, length);
+        } else {
+            Arrays.sort(values, 0, length);
+        }
+    }
+
+    /**
+     * Checks whether a value is present in the store
+     * @param key the value to look for
+     * @return true if the value has been inserted at least once
+     */
+    boolean contains(double key);
+
+    /**
+     * @return the number of values in the store, counting duplicates
+     */
+    int getSize();
+
+    /**
+     * @return the number of distinct values in the store, with equality as in Double.compare
+     */
+    int getDistinctCount();
+
+    /**
+     * Modification counter that changes whenever values are inserted.
+     * Callers can cache views derived from the store and rebuild them only when it changes.
+     * @return the current version of the store
+     */
+    long getVersion();
+
+    /**
+     * Convert the store to an ArrayList
+     * @return ArrayList containing every value in ascending order
+     */
+    ArrayList<Double> toArrayList();
+
+    /**
+     * List the distinct values with their counts, built in one ascending pass over the store
+     * @return FrequencyTable with the values in ascending order and their frequencies
+     */
+    FrequencyTable toFrequencyTable();
+
+    /**
+     * Convert the store to a frequency map. Prefer toFrequencyTable, which boxes nothing.
+     * @return HashMap with entries representing <number, frequency>
+     */
+    default HashMap<Double, Integer> toFrequencyMap() {
+        return toFrequencyTable().toHashMap();
+    }
+
+    /**
+     * Find the k-th smallest value
+     * @param k zero-based position in ascending order
+     * @return the value at position k
+     * @throws IndexOutOfBoundsException if k is not between 0 and getSize() - 1
+     */
+    double select(int k);
+
+    /**
+     * Find several order statistics at once. Stores holding unsorted values can answer
+     * the whole batch with one pass of partitioning instead of one search per rank.
+     * @param ks zero-based positions in ascending order, in any order
+     * @return the values at those positions, in the same order as ks
+     * @throws IndexOutOfBoundsException if a position is not between 0 and getSize() - 1
+     */
+    default double[] selectAll(int... ks) {
+        double[] result = new double[ks.length];
+        for (int i = 0; i < ks.length; i++) {
+            result[i] = select(ks[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Count the values strictly less than the given key
+     * @param key the value to rank
+     * @return the number of stored values smaller than key
+     */
+    int rank(double key);
+
+    /**
+     * Copy the store into a primitive array
+     * @return a new array containing every value in ascending order
+     */
+    double[] toSortedArray();
+}
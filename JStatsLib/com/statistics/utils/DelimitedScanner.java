@@ -0,0 +1,75 @@
+package com.statistics.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <summary>
+ * DelimitedScanner splits raw bytes on a single-byte delimiter and parses every token
+ * into a DoubleArray. Line breaks always separate tokens, matching line-by-line reading.
+ * No Strings or regular expressions are involved.
+ * </summary>
+ */
+final class DelimitedScanner {
+    private final byte delimiter;
+
+    DelimitedScanner(String delimiter) {
+        if (!supports(delimiter)) {
+            throw new IllegalArgumentException("Delimiter must be a single ASCII character");
+        }
+        this.delimiter = (byte) delimiter.charAt(0);
+    }
+
+    /**
+     * @param delimiter the delimiter given by the user
+     * @return true if the delimiter is a single ASCII character that can be matched as a byte
+     */
+    static boolean supports(String delimiter) {
+        return delimiter != null && delimiter.length() == 1 && delimiter.charAt(0) < 128;
+    }
+
+    boolean isSeparator(byte b) {
+        return b == delimiter || b == '\n' || b == '\r';
+    }
+
+    /**
+     * Parse every complete token in buf[from, to)
+     * @param buf the bytes to scan
+     * @param from index of the first byte
+     * @param to index after the last byte
+     * @param endOfInput true if no more bytes follow, so the last token is complete
+     * @param out the buffer to append parsed values to
+     * @return index after the last consumed byte; bytes from there on belong to an unfinished token
+     */
+    int scan(ByteBuffer buf, int from, int to, boolean endOfInput, DoubleArray out) {
+        int tokenStart = from;
+        for (int i = from; i < to; i++) {
+            if (isSeparator(buf.get(i))) {
+                parseToken(buf, tokenStart, i, out);
+                tokenStart = i + 1;
+            }
+        }
+        if (endOfInput) {
+            parseToken(buf, tokenStart, to, out);
+            return to;
+        }
+        return tokenStart;
+    }
+
+    private void parseToken(ByteBuffer buf, int start, int end, DoubleArray out) {
+        // Trim like String.trim()
+        while (start < end && (buf.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buf.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return;
+        }
+        try {
+            out.add(NumberParser.parse(buf, start, end));
+        } catch (NumberFormatException e) {
+            System.err.println("Skipping invalid value: " + NumberParser.text(buf, start, end));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.statistics.utils;
+
+import java.util.Arrays;
+
+/**
+ * <summary>
+ * DoubleArray is a growable buffer of primitive doubles.
+ * It is used to collect parsed values without boxing before they are handed to a DataStore.
+ * </summary>
+ */
+public class DoubleArray {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private double[] values;
+    private int size;
+
+    /**
+     * Constructs a new, empty DoubleArray
+     */
+    public DoubleArray() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new, empty DoubleArray with room for the given number of values
+     * @param initialCapacity the number of values to reserve space for
+     */
+    public DoubleArray(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        values = new double[Math.max(initialCapacity, 1)];
+    }
+
+    /**
+     * Appends a value to the end of the buffer
+     * @param value the value to append
+     */
+    public void add(double value) {
+        if (size == values.length) {
+            ensureCapacity(size + 1);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Appends every value of another buffer to the end of this one
+     * @param other the buffer to copy values from
+     */
+    public void addAll(DoubleArray other) {
+        addAll(other.values, 0, other.size);
+    }
+
+    /**
+     * Appends values[from, from + length) to the end of the buffer
+     * @param values the array to copy values from
+     * @param from index of the first value to copy
+     * @param length the number of values to copy
+     */
+    public void addAll(double[] values, int from, int length) {
+        ensureCapacity(size + length);
+        System.arraycopy(values, from, this.values, size, length);
+        size += length;
+    }
+
+    /**
+     * Makes sure the buffer can hold the given number of values without growing again
+     * @param minCapacity the number of values to reserve space for
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > values.length) {
+            int newCapacity = values.length + (values.length >> 1);
+            if (newCapacity < minCapacity || newCapacity < 0) {
+                newCapacity = minCapacity;
+            }
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+    /**
+     * @param index position between 0 and size() - 1
+     * @return the value at that position
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * Returns the backing array without copying. Only the first size() entries are valid.
+     * @return the backing array
+     */
+    public double[] array() {
+        return values;
+    }
+
+    /**
+     * @return a copy of the values in the buffer
+     */
+    public double[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Removes every value while keeping the allocated capacity
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
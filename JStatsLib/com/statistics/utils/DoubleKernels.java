@@ -0,0 +1,26 @@
+package com.statistics.utils;
+
+/**
+ * <summary>
+ * The reductions behind Kernels. ScalarKernels is always available; VectorKernels
+ * is used instead when the jdk.incubator.vector module is present.
+ * </summary>
+ */
+interface DoubleKernels {
+    /**
+     * @return the sum of values[from, to)
+     */
+    double sum(double[] values, int from, int to);
+
+    /**
+     * Fused pass over values[from, to) measuring deviations from center.
+     * out[0] = sum of squared deviations, out[1] = sum of cubed deviations,
+     * out[2] = sum of fourth-power deviations, out[3] = min, out[4] = max
+     */
+    void centralMoments(double[] values, int from, int to, double center, double[] out);
+
+    /**
+     * @return the sum of exp(-0.5 * ((x - value) / bandwidth)^2) over values[from, to)
+     */
+    double gaussianKernelSum(double[] values, int from, int to, double x, double bandwidth);
+}
@@ -3,42 +3,388 @@ package com.statistics.utils;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.DoubleConsumer;
 
 /**
- * FileHandler reads data from a file and inserts it into the RBTree.
+ * FileHandler reads data from a file and inserts it into a DataStore such as the RBTree.
+ * Files with a single-character delimiter are memory-mapped and parsed straight from bytes.
+ * In bulk-load mode the parsed values are collected first, sorted once and inserted together.
+ * With a parallelism above 1, large files are split into ranges that are parsed on separate threads.
+ * Data can also be streamed from an InputStream or ReadableByteChannel through a fixed-size buffer.
+ * An optional sequence buffer receives every value in the order it was read.
+ * Instead of a store, values can be passed to a DoubleConsumer sink such as a streaming sketch,
+ * so that nothing but the sink's own state is kept.
 */
 public class FileHandler {
+    // Files are mapped in windows of at most this many bytes
+    private static final int MAX_WINDOW = 1 << 30;
+    // Smaller files are not worth splitting across threads
+    private static final long MIN_PARALLEL_SIZE = 1 << 20;
+    // Ranges per worker, so that uneven ranges still keep every worker busy
+    private static final int RANGES_PER_THREAD = 4;
+    // Size of the buffer used when reading from a stream
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
+
     private String path;
+    private ReadableByteChannel channel;
     private String delimiter;
-    private RBTree tree;
+    private DataStore store;
+    private DoubleConsumer sink;
+    private boolean bulkLoad;
+    private int parallelism = 1;
+    private DoubleArray buffer;
+    private DoubleArray sequence;
+
+    public FileHandler(String path, String delimiter, DataStore store) {
+        this.path = path;
+        this.delimiter = delimiter;
+        this.store = store;
+    }
+
+    /**
+     * Creates a FileHandler that reads from a channel instead of a file.
+     * The channel is read until it ends but is not closed.
+     * @param channel the channel to read from, such as a socket or pipe
+     * @param delimiter the delimiter used in the data
+     * @param store the store to insert values into
+     */
+    public FileHandler(ReadableByteChannel channel, String delimiter, DataStore store) {
+        this.channel = channel;
+        this.delimiter = delimiter;
+        this.store = store;
+    }
+
+    /**
+     * Creates a FileHandler that reads from an input stream such as System.in.
+     * The stream is read until it ends but is not closed.
+     * @param in the stream to read from
+     * @param delimiter the delimiter used in the data
+     * @param store the store to insert values into
+     */
+    public FileHandler(InputStream in, String delimiter, DataStore store) {
+        this(Channels.newChannel(in), delimiter, store);
+    }
 
-    public FileHandler(String path, String delimiter, RBTree tree) {
+    /**
+     * Creates a FileHandler that passes every value of a file to a sink in the order it is read.
+     * Bulk loading does not apply, since no values are collected.
+     * @param path the file to read
+     * @param delimiter the delimiter used in the file
+     * @param sink the consumer that receives each value
+     */
+    public FileHandler(String path, String delimiter, DoubleConsumer sink) {
         this.path = path;
         this.delimiter = delimiter;
-        this.tree = tree;
+        this.sink = sink;
+    }
+
+    /**
+     * Creates a FileHandler that passes every value read from a channel to a sink.
+     * The channel is read until it ends but is not closed.
+     * @param channel the channel to read from, such as a socket or pipe
+     * @param delimiter the delimiter used in the data
+     * @param sink the consumer that receives each value
+     */
+    public FileHandler(ReadableByteChannel channel, String delimiter, DoubleConsumer sink) {
+        this.channel = channel;
+        this.delimiter = delimiter;
+        this.sink = sink;
+    }
+
+    /**
+     * Enable or disable bulk loading. When enabled, values are buffered in a primitive array,
+     * and handed to the store in a single insertAll call, instead of being
+     * inserted one by one. This needs 8 extra bytes per value while the file is read.
+     * @param bulkLoad true to bulk load
+     */
+    public void setBulkLoad(boolean bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+
+    public boolean isBulkLoad() {
+        return bulkLoad;
+    }
+
+    /**
+     * Set the number of threads used to parse a file. Values above 1 split files with a
+     * single-character delimiter into delimiter-aligned byte ranges that are parsed in parallel.
+     * Values keep their order in the file either way.
+     * @param parallelism the number of worker threads, at least 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Set a buffer that every value is appended to in the order it appears in the input,
+     * before the store reorders it. Parallel reads keep this order as well.
+     * @param sequence the buffer to append to, or null to keep no sequence
+     */
+    public void setSequence(DoubleArray sequence) {
+        this.sequence = sequence;
+    }
+
+    public DoubleArray getSequence() {
+        return sequence;
     }
 
     public void readFile() {
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-            String line = br.readLine();
-            while (line != null) {
-                String[] data = line.split(delimiter);
-                for (String item : data) {
-                    try {
-                        double value = Double.parseDouble(item.trim());
-                        insertParsedValue(value);
-                    } catch (NumberFormatException e) {
-                        System.err.println("Skipping invalid value: " + item);
-                    }
-                }
-                line = br.readLine();
+        buffer = bulkLoad && sink == null ? new DoubleArray() : null;
+        try {
+            if (channel != null) {
+                readStream();
+            } else if (DelimitedScanner.supports(delimiter) && parallelism > 1) {
+                readParallel();
+            } else if (DelimitedScanner.supports(delimiter)) {
+                readMapped();
+            } else {
+                readLines();
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
+        if (buffer != null) {
+            flushBuffer();
+        }
+    }
+
+    // Scan the memory-mapped file without creating a String per line or value
+    private void readMapped() throws IOException {
+        DelimitedScanner scanner = new DelimitedScanner(delimiter);
+        DoubleArray values = buffer != null ? buffer : new DoubleArray();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long position = 0;
+            while (position < fileSize) {
+                int length = (int) Math.min(MAX_WINDOW, fileSize - position);
+                boolean last = position + length == fileSize;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                // An unfinished token at the end of the window is read again with the next one
+                int consumed = scanner.scan(window, 0, length, last, values);
+                if (consumed == 0 && !last) {
+                    throw new IOException("Value at byte " + position + " is longer than " + MAX_WINDOW + " bytes");
+                }
+                position += consumed;
+
+                if (buffer == null) {
+                    insertAll(values);
+                    values.clear();
+                }
+            }
+        }
     }
 
-    private void insertParsedValue(Double item) {
-        tree.insert(item);
+    // Parse delimiter-aligned ranges of the file on a pool of workers
+    private void readParallel() throws IOException {
+        DelimitedScanner scanner = new DelimitedScanner(delimiter);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < MIN_PARALLEL_SIZE) {
+                readMapped();
+                return;
+            }
+
+            // Split into roughly equal ranges that each start at the beginning of a token
+            int rangeCount = (int) Math.max(parallelism * RANGES_PER_THREAD, fileSize / (MAX_WINDOW / 2) + 1);
+            long rangeSize = fileSize / rangeCount + 1;
+            List<long[]> ranges = new ArrayList<>();
+            long start = 0;
+            while (start < fileSize) {
+                long end = start + rangeSize >= fileSize ? fileSize : alignToToken(channel, start + rangeSize, fileSize, scanner);
+                if (end - start > MAX_WINDOW) {
+                    throw new IOException("Value at byte " + start + " is longer than " + MAX_WINDOW + " bytes");
+                }
+                ranges.add(new long[]{start, end});
+                start = end;
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                List<ForkJoinTask<DoubleArray>> tasks = new ArrayList<>(ranges.size());
+                for (long[] range : ranges) {
+                    tasks.add(pool.submit(() -> parseRange(channel, range[0], range[1], scanner)));
+                }
+                // Join in file order so values are merged in the order they were read
+                for (ForkJoinTask<DoubleArray> task : tasks) {
+                    DoubleArray values = task.get();
+                    if (buffer != null) {
+                        buffer.addAll(values);
+                    } else {
+                        insertAll(values);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading " + path, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Failed to read " + path, e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // Move position forward to the first byte after a separator
+    private long alignToToken(FileChannel channel, long position, long fileSize, DelimitedScanner scanner) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long offset = position - 1;
+        while (offset < fileSize) {
+            probe.clear();
+            int read = channel.read(probe, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scanner.isSeparator(probe.get(i))) {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return fileSize;
+    }
+
+    private DoubleArray parseRange(FileChannel channel, long start, long end, DelimitedScanner scanner) throws IOException {
+        int length = (int) (end - start);
+        MappedByteBuffer range = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        // Most values take well over 8 bytes with their separator, so this rarely needs to grow
+        DoubleArray values = new DoubleArray(length / 8 + 16);
+        scanner.scan(range, 0, length, true, values);
+        return values;
+    }
+
+    // Parse the channel incrementally, keeping at most one buffer of bytes in memory
+    private void readStream() throws IOException {
+        if (!DelimitedScanner.supports(delimiter)) {
+            readLines(new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8)));
+            return;
+        }
+        DelimitedScanner scanner = new DelimitedScanner(delimiter);
+        DoubleArray values = buffer != null ? buffer : new DoubleArray();
+        ByteBuffer window = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+        boolean skipping = false;
+        boolean end = false;
+
+        while (!end) {
+            end = channel.read(window) < 0;
+            int limit = window.position();
+            int start = 0;
+
+            if (skipping) {
+                // Drop the rest of an oversized token
+                while (start < limit && !scanner.isSeparator(window.get(start))) {
+                    start++;
+                }
+                skipping = start == limit;
+            }
+
+            int consumed = skipping ? limit : scanner.scan(window, start, limit, end, values);
+            if (consumed == 0 && limit == window.capacity()) {
+                System.err.println("Skipping invalid value longer than " + STREAM_BUFFER_SIZE + " bytes");
+                skipping = true;
+                consumed = limit;
+            }
+
+            // Keep the unfinished token at the front of the buffer
+            window.limit(limit);
+            window.position(consumed);
+            window.compact();
+
+            if (buffer == null) {
+                insertAll(values);
+                values.clear();
+            }
+        }
+    }
+
+    // Fallback for delimiters that need a regular expression
+    private void readLines() throws IOException {
+        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+            readLines(br);
+        }
+    }
+
+    private void readLines(BufferedReader br) throws IOException {
+        String line = br.readLine();
+        while (line != null) {
+            String[] data = line.split(delimiter);
+            for (String item : data) {
+                try {
+                    double value = Double.parseDouble(item.trim());
+                    insertParsedValue(value);
+                } catch (NumberFormatException e) {
+                    System.err.println("Skipping invalid value: " + item);
+                }
+            }
+            line = br.readLine();
+        }
+    }
+
+    private void insertParsedValue(double item) {
+        if (buffer != null) {
+            buffer.add(item);
+        } else {
+            if (sequence != null) {
+                sequence.add(item);
+            }
+            if (sink != null) {
+                sink.accept(item);
+            } else {
+                store.insert(item);
+            }
+        }
+    }
+
+    // Insert values one by one in the order they were read
+    private void insertAll(DoubleArray values) {
+        if (sequence != null) {
+            sequence.addAll(values);
+        }
+        if (sink != null) {
+            for (int i = 0; i < values.size(); i++) {
+                sink.accept(values.get(i));
+            }
+            return;
+        }
+        for (int i = 0; i < values.size(); i++) {
+            store.insert(values.get(i));
+        }
+    }
+
+    // Insert the buffered values together; the store sorts them once or defers ordering
+    private void flushBuffer() {
+        // The buffer still holds the values in read order until the store reorders it
+        if (sequence != null) {
+            sequence.addAll(buffer);
+        }
+        store.insertAll(buffer.array(), buffer.size());
+        buffer = null;
     }
 }
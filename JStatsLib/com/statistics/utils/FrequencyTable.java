@@ -0,0 +1,151 @@
+package com.statistics.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * <summary>
+ * FrequencyTable lists the distinct values of a dataset with how often each occurs,
+ * as two parallel primitive arrays sorted by value. Unlike a HashMap of Double to Integer
+ * it takes no object per entry, iterates in ascending order and finds a value by binary search.
+ * Values are distinct as in Double.compare. The table is a snapshot: it does not change with its store.
+ * </summary>
+ */
+public final class FrequencyTable {
+    private final double[] values;
+    private final int[] counts;
+    private final int size;
+    private final long total;
+
+    /**
+     * Wraps arrays built by a store; they must not be changed afterwards
+     * @param values distinct values in ascending order
+     * @param counts the number of occurrences of each value, all positive
+     * @param size the number of entries used from the start of both arrays
+     */
+    FrequencyTable(double[] values, int[] counts, int size) {
+        this.values = values;
+        this.counts = counts;
+        this.size = size;
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += counts[i];
+        }
+        this.total = total;
+    }
+
+    /**
+     * Builds a table by counting the runs of equal values in a sorted array
+     * @param sorted values in ascending order
+     * @param length the number of values to take from the start of the array
+     * @return the frequency table of those values
+     * @throws IllegalArgumentException if the values are not in ascending order
+     */
+    public static FrequencyTable ofSorted(double[] sorted, int length) {
+        if (length < 0 || length > sorted.length) {
+            throw new IllegalArgumentException("Length must be between 0 and " + sorted.length);
+        }
+        int distinct = length > 0 ? 1 : 0;
+        for (int i = 1; i < length; i++) {
+            int order = Double.compare(sorted[i - 1], sorted[i]);
+            if (order > 0) {
+                throw new IllegalArgumentException("Values must be sorted in ascending order");
+            }
+            if (order != 0) {
+                distinct++;
+            }
+        }
+        double[] values = new double[distinct];
+        int[] counts = new int[distinct];
+        int entry = -1;
+        for (int i = 0; i < length; i++) {
+            if (entry < 0 || Double.compare(values[entry], sorted[i]) != 0) {
+                values[++entry] = sorted[i];
+            }
+            counts[entry]++;
+        }
+        return new FrequencyTable(values, counts, distinct);
+    }
+
+    /**
+     * @return the number of distinct values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of values counted, the sum of all counts
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @param index the position of the entry, from 0 to size() - 1 in ascending order of value
+     * @return the distinct value at that position
+     */
+    public double getValue(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * @param index the position of the entry, from 0 to size() - 1 in ascending order of value
+     * @return how often the value at that position occurs
+     */
+    public int getCount(int index) {
+        checkIndex(index);
+        return counts[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    /**
+     * Finds the position of a value by binary search
+     * @param value the value to look for
+     * @return its position, or -(insertion point) - 1 if it does not occur, as in Arrays.binarySearch
+     */
+    public int indexOf(double value) {
+        return Arrays.binarySearch(values, 0, size, value);
+    }
+
+    /**
+     * @param value the value to look up
+     * @return how often the value occurs, 0 if it does not
+     */
+    public int countOf(double value) {
+        int index = indexOf(value);
+        return index >= 0 ? counts[index] : 0;
+    }
+
+    /**
+     * @return a copy of the distinct values in ascending order
+     */
+    public double[] toValueArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * @return a copy of the counts, in the same order as toValueArray()
+     */
+    public int[] toCountArray() {
+        return Arrays.copyOf(counts, size);
+    }
+
+    /**
+     * Copies the table into a HashMap, for callers that need the Map interface
+     * @return HashMap with entries representing <number, frequency>
+     */
+    public HashMap<Double, Integer> toHashMap() {
+        HashMap<Double, Integer> freqMap = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+        for (int i = 0; i < size; i++) {
+            freqMap.put(values[i], counts[i]);
+        }
+        return freqMap;
+    }
+}
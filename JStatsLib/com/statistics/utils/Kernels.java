@@ -0,0 +1,92 @@
+package com.statistics.utils;
+
+/**
+ * <summary>
+ * Kernels are the hot reductions over primitive arrays: sums, central moments with min and max,
+ * and Gaussian kernel sums for density estimation.
+ * When the optional VectorKernels class is on the class path and the JVM runs with
+ * --add-modules jdk.incubator.vector, the loops use SIMD lanes through the Vector API.
+ * Otherwise, or with -Djstatslib.vector=false, the scalar implementation is used.
+ * </summary>
+ */
+public final class Kernels {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_IMPLEMENTATION = "com.statistics.utils.VectorKernels";
+
+    private static final DoubleKernels IMPLEMENTATION = load();
+
+    private Kernels() {
+    }
+
+    // Pick the vector implementation when it can be linked, the scalar one otherwise
+    private static DoubleKernels load() {
+        if (!Boolean.parseBoolean(System.getProperty("jstatslib.vector", "true"))
+                || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return new ScalarKernels();
+        }
+        try {
+            return (DoubleKernels) Class.forName(VECTOR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarKernels();
+        }
+    }
+
+    /**
+     * @return true if the Vector API implementation is in use
+     */
+    public static boolean isVectorized() {
+        return !(IMPLEMENTATION instanceof ScalarKernels);
+    }
+
+    /**
+     * Sum values[from, to)
+     * @param values the array to sum
+     * @param from index of the first value
+     * @param to index after the last value
+     * @return the sum of the range
+     */
+    public static double sum(double[] values, int from, int to) {
+        checkRange(values, from, to);
+        return IMPLEMENTATION.sum(values, from, to);
+    }
+
+    /**
+     * Compute the sums of the second, third and fourth powers of the deviations from center,
+     * together with the minimum and maximum, in one pass over values[from, to)
+     * @param values the array to read
+     * @param from index of the first value
+     * @param to index after the last value
+     * @param center the value deviations are measured from, usually the mean
+     * @return {sum of d^2, sum of d^3, sum of d^4, min, max}
+     */
+    public static double[] centralMoments(double[] values, int from, int to, double center) {
+        checkRange(values, from, to);
+        double[] out = new double[5];
+        IMPLEMENTATION.centralMoments(values, from, to, center, out);
+        return out;
+    }
+
+    /**
+     * Sum the unnormalized Gaussian kernel exp(-0.5 * ((x - value) / bandwidth)^2) over values[from, to).
+     * Dividing by n * bandwidth * sqrt(2 * pi) gives the kernel density estimate at x.
+     * @param values the sample
+     * @param from index of the first value
+     * @param to index after the last value
+     * @param x the point to evaluate the density at
+     * @param bandwidth the kernel bandwidth, greater than 0
+     * @return the kernel sum
+     */
+    public static double gaussianKernelSum(double[] values, int from, int to, double x, double bandwidth) {
+        checkRange(values, from, to);
+        if (!(bandwidth > 0)) {
+            throw new IllegalArgumentException("Bandwidth must be positive");
+        }
+        return IMPLEMENTATION.gaussianKernelSum(values, from, to, x, bandwidth);
+    }
+
+    private static void checkRange(double[] values, int from, int to) {
+        if (from < 0 || to > values.length || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length " + values.length);
+        }
+    }
+}
@@ -3,18 +3,23 @@ package com.statistics.utils;
 /**
  * <summary>
  * Node is a class representing a single node in a Red-Black Tree
- * Each node stores string data and has pointers to its parent, left child, and right child
+ * Each node stores a value, how many times it was inserted, and has pointers to its parent, left child, and right child
+ * Each node also tracks the number of values in its subtree for order-statistic queries
  * </summary>
  */
 public class Node {
-    Double data;
+    double data;
+    int count;
     Node parent;
     Node left;
     Node right;
     boolean isRed;
+    int size;
 
-    Node(Double data) {
+    Node(double data) {
         this.data = data;
+        this.count = 1;
+        this.size = 1;
         this.parent = null;
         this.left = null;
         this.right = null;
@@ -24,4 +29,8 @@ public class Node {
     public Double toDouble(){
       return data;
     }
+
+    public int getCount(){
+      return count;
+    }
 }
@@ -0,0 +1,145 @@
+package com.statistics.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <summary>
+ * NumberParser converts ASCII decimal numbers straight from bytes into doubles.
+ * Plain decimals and scientific notation with up to 18 significant digits and a small
+ * exponent are computed exactly without creating a String. Anything else is handed
+ * to Double.parseDouble, so the result is always the correctly rounded value.
+ * </summary>
+ */
+final class NumberParser {
+    private static final int MAX_DIGITS = 18;
+    // Largest power of ten that is exactly representable as a double
+    private static final int MAX_EXACT_POWER = 22;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_POWER + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i <= MAX_EXACT_POWER; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private NumberParser() {
+    }
+
+    /**
+     * Parse the bytes in buf[start, end) as a double
+     * @param buf the buffer holding the text
+     * @param start index of the first byte
+     * @param end index after the last byte
+     * @return the parsed value
+     * @throws NumberFormatException if the bytes are not a valid number
+     */
+    static double parse(ByteBuffer buf, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        byte b = buf.get(i);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean sawDigit = false;
+
+        // Integer part
+        while (i < end && (b = buf.get(i)) >= '0' && b <= '9') {
+            if (digits == MAX_DIGITS) {
+                return parseSlow(buf, start, end);
+            }
+            mantissa = mantissa * 10 + (b - '0');
+            if (mantissa != 0) {
+                digits++;
+            }
+            sawDigit = true;
+            i++;
+        }
+
+        // Fraction part
+        if (i < end && buf.get(i) == '.') {
+            i++;
+            while (i < end && (b = buf.get(i)) >= '0' && b <= '9') {
+                if (digits == MAX_DIGITS) {
+                    return parseSlow(buf, start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+                exponent--;
+                sawDigit = true;
+                i++;
+            }
+        }
+
+        if (!sawDigit) {
+            // Covers NaN, Infinity and invalid input
+            return parseSlow(buf, start, end);
+        }
+
+        // Exponent part
+        if (i < end && ((b = buf.get(i)) == 'e' || b == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && ((b = buf.get(i)) == '-' || b == '+')) {
+                negativeExponent = b == '-';
+                i++;
+            }
+            if (i == end) {
+                return parseSlow(buf, start, end);
+            }
+            int exponentValue = 0;
+            while (i < end && (b = buf.get(i)) >= '0' && b <= '9') {
+                if (exponentValue < 100000) {
+                    exponentValue = exponentValue * 10 + (b - '0');
+                }
+                i++;
+            }
+            exponent += negativeExponent ? -exponentValue : exponentValue;
+        }
+
+        if (i != end) {
+            // Trailing characters such as type suffixes or hexadecimal notation
+            return parseSlow(buf, start, end);
+        }
+
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (mantissa > MAX_EXACT_MANTISSA || exponent < -MAX_EXACT_POWER || exponent > MAX_EXACT_POWER) {
+            return parseSlow(buf, start, end);
+        }
+
+        // Both operands are exact, so a single multiplication or division rounds correctly
+        double value = exponent < 0
+                ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    private static double parseSlow(ByteBuffer buf, int start, int end) {
+        return Double.parseDouble(text(buf, start, end));
+    }
+
+    /**
+     * @param buf the buffer holding the text
+     * @param start index of the first byte
+     * @param end index after the last byte
+     * @return the bytes in buf[start, end) as a String
+     */
+    static String text(ByteBuffer buf, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buf.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,167 @@
+package com.statistics.utils;
+
+/**
+ * <summary>
+ * PrefixSums answers the sum or mean of any range of a series in O(1) after a single O(n) pass,
+ * so moving averages cost O(n) whatever the window size, and one instance serves any number of windows.
+ * Each prefix is kept as a compensated pair, the running sum and its accumulated rounding error
+ * as in CompensatedSum, so a range far into a long series is as accurate as summing it directly.
+ * The series is copied into the prefixes, which take two doubles per value.
+ * </summary>
+ */
+public final class PrefixSums {
+    // sums[i] + errors[i] is the sum of the first i values
+    private final double[] sums;
+    private final double[] errors;
+    private final int size;
+
+    /**
+     * Builds the prefix sums of values[from, from + length)
+     * @param values the series
+     * @param from index of the first value
+     * @param length the number of values
+     */
+    public PrefixSums(double[] values, int from, int length) {
+        if (from < 0 || length < 0 || from + length > values.length) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + (from + length) + ") out of bounds for length " + values.length);
+        }
+        size = length;
+        sums = new double[length + 1];
+        errors = new double[length + 1];
+        double sum = 0;
+        double error = 0;
+        for (int i = 0; i < length; i++) {
+            double value = values[from + i];
+            double t = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                error += (sum - t) + value;
+            } else {
+                error += (value - t) + sum;
+            }
+            sum = t;
+            sums[i + 1] = sum;
+            errors[i + 1] = error;
+        }
+    }
+
+    /**
+     * Builds the prefix sums of a whole series
+     * @param values the series
+     */
+    public PrefixSums(DoubleArray values) {
+        this(values.array(), 0, values.size());
+    }
+
+    /**
+     * @return the number of values in the series
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sum of the values at positions [from, to) in O(1)
+     * @param from position of the first value
+     * @param to position after the last value
+     * @return the sum of the range, 0 if it is empty
+     */
+    public double sum(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for size " + size);
+        }
+        return (sums[to] - sums[from]) + (errors[to] - errors[from]);
+    }
+
+    /**
+     * Mean of the values at positions [from, to) in O(1)
+     * @param from position of the first value
+     * @param to position after the last value
+     * @return the mean of the range
+     * @throws IllegalArgumentException if the range is empty
+     */
+    public double mean(int from, int to) {
+        if (from >= to) {
+            throw new IllegalArgumentException("Cannot average an empty range");
+        }
+        return sum(from, to) / (to - from);
+    }
+
+    /**
+     * Trailing moving average: entry i is the mean of the window ending at position i.
+     * The first window - 1 entries average the fewer values available so far.
+     * @param window the number of values per window, from 1 to size()
+     * @return size() averages
+     */
+    public double[] trailingMeans(int window) {
+        double[] result = new double[size];
+        trailingMeans(window, 0, size, result);
+        return result;
+    }
+
+    /**
+     * Writes the trailing moving average of positions [from, to) into out[from, to),
+     * so a long series can be smoothed block by block
+     * @param window the number of values per window, from 1 to size()
+     * @param from position of the first average
+     * @param to position after the last average
+     * @param out the array of size() averages to fill
+     */
+    public void trailingMeans(int window, int from, int to, double[] out) {
+        checkWindow(window, 1);
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for size " + size);
+        }
+        for (int i = from; i < to; i++) {
+            int start = Math.max(0, i - window + 1);
+            out[i] = sum(start, i + 1) / (i + 1 - start);
+        }
+    }
+
+    /**
+     * Leading moving average: entry i is the mean of the window starting at position i.
+     * The last window - 1 entries average the fewer values that remain.
+     * @param window the number of values per window, from 1 to size()
+     * @return size() averages
+     */
+    public double[] leadingMeans(int window) {
+        checkWindow(window, 1);
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++) {
+            int to = Math.min(size, i + window);
+            result[i] = sum(i, to) / (to - i);
+        }
+        return result;
+    }
+
+    /**
+     * Centered moving average over the positions with a full window on both sides.
+     * An odd window is symmetric around each position; an even window averages the two
+     * windows of that size that are closest to centered, i.e. a 2 x window moving average.
+     * @param window the number of values per window, from 2 to size()
+     * @return size() - 2 * (window / 2) averages, starting at position window / 2
+     */
+    public double[] centeredMeans(int window) {
+        checkWindow(window, 2);
+        int offset = window / 2;
+        double[] result = new double[size - 2 * offset];
+        for (int i = offset; i < size - offset; i++) {
+            if (window % 2 == 1) {
+                result[i - offset] = sum(i - offset, i + offset + 1) / window;
+            } else {
+                double sum1 = sum(i - offset, i + offset);
+                double sum2 = sum(i - offset + 1, i + offset + 1);
+                result[i - offset] = (sum1 / window + sum2 / window) / 2;
+            }
+        }
+        return result;
+    }
+
+    private void checkWindow(int window, int min) {
+        if (window < min) {
+            throw new IllegalArgumentException("Window size must be at least " + min);
+        }
+        if (window > size) {
+            throw new IllegalArgumentException("Window size cannot be larger than the data size");
+        }
+    }
+}
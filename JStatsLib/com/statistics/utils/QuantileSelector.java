@@ -0,0 +1,244 @@
+package com.statistics.utils;
+
+import java.util.Arrays;
+
+/**
+ * <summary>
+ * QuantileSelector finds order statistics and quantiles of an unsorted primitive array
+ * without sorting it. Introselect partitions the range around a pivot and only continues
+ * into the side holding the wanted rank, which takes expected O(n) time; if partitioning
+ * stops making progress the remaining range is sorted, so the worst case stays O(n log n).
+ * Several ranks are found together by partitioning once and splitting the ranks between the sides.
+ * The array is reordered in place, so pass a copy if the original order matters.
+ * Values are ordered like Arrays.sort: -0.0 before 0.0 and NaN last.
+ * </summary>
+ */
+public final class QuantileSelector {
+    // Ranges this small are finished with insertion sort
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private QuantileSelector() {
+    }
+
+    /**
+     * Find the k-th smallest value of values[from, to).
+     * Afterwards values[k] holds that value, everything before it is not greater
+     * and everything after it is not smaller.
+     * @param values the array to search, reordered in place
+     * @param from index of the first value
+     * @param to index after the last value
+     * @param k the index the value would have if the range were sorted
+     * @return the k-th smallest value
+     */
+    public static double select(double[] values, int from, int to, int k) {
+        checkRange(values, from, to);
+        checkRank(from, to, k);
+        select(values, from, to - 1, new int[]{k}, 0, 1, depthLimit(to - from));
+        return values[k];
+    }
+
+    /**
+     * Find several order statistics of values[from, to) in one pass of recursive partitioning.
+     * Each partition step only descends into the sides that still hold a wanted rank.
+     * @param values the array to search, reordered in place
+     * @param from index of the first value
+     * @param to index after the last value
+     * @param ks the indexes the values would have if the range were sorted, in any order
+     * @return the selected values, in the same order as ks
+     */
+    public static double[] selectAll(double[] values, int from, int to, int... ks) {
+        checkRange(values, from, to);
+        for (int k : ks) {
+            checkRank(from, to, k);
+        }
+        int[] ranks = ks.clone();
+        Arrays.sort(ranks);
+        if (ranks.length > 0) {
+            select(values, from, to - 1, ranks, 0, ranks.length, depthLimit(to - from));
+        }
+        double[] result = new double[ks.length];
+        for (int i = 0; i < ks.length; i++) {
+            result[i] = values[ks[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Calculate a quantile of values[from, to), interpolating linearly between
+     * the two closest ranks like BasicStats does
+     * @param values the array to search, reordered in place
+     * @param from index of the first value
+     * @param to index after the last value
+     * @param p the quantile between 0 and 1, e.g. 0.5 for the median
+     * @return the quantile
+     */
+    public static double quantile(double[] values, int from, int to, double p) {
+        return quantiles(values, from, to, p)[0];
+    }
+
+    /**
+     * Calculate several quantiles of values[from, to) at once
+     * @param values the array to search, reordered in place
+     * @param from index of the first value
+     * @param to index after the last value
+     * @param ps the quantiles between 0 and 1
+     * @return the quantiles, in the same order as ps
+     */
+    public static double[] quantiles(double[] values, int from, int to, double... ps) {
+        checkRange(values, from, to);
+        if (from == to) {
+            throw new IllegalArgumentException("Cannot calculate quantiles of an empty range");
+        }
+        int[] ranks = quantileRanks(to - from, ps);
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] += from;
+        }
+        double[] selected = selectAll(values, from, to, ranks);
+        return interpolate(to - from, ps, selected);
+    }
+
+    /**
+     * The ranks needed to interpolate the given quantiles of n values: for each p,
+     * the rank at or below p * (n - 1) followed by the rank after it
+     * @param n the number of values
+     * @param ps the quantiles between 0 and 1
+     * @return two ranks per quantile
+     */
+    public static int[] quantileRanks(int n, double... ps) {
+        int[] ranks = new int[2 * ps.length];
+        for (int i = 0; i < ps.length; i++) {
+            double p = ps[i];
+            if (!(p >= 0 && p <= 1)) {
+                throw new IllegalArgumentException("Quantile must be between 0 and 1: " + p);
+            }
+            int idx = (int) (p * (n - 1));
+            ranks[2 * i] = idx;
+            ranks[2 * i + 1] = Math.min(idx + 1, n - 1);
+        }
+        return ranks;
+    }
+
+    /**
+     * Interpolate quantiles from the values at the ranks returned by quantileRanks
+     * @param n the number of values
+     * @param ps the quantiles between 0 and 1
+     * @param selected the values at quantileRanks(n, ps), in the same order
+     * @return the quantiles, in the same order as ps
+     */
+    public static double[] interpolate(int n, double[] ps, double[] selected) {
+        double[] result = new double[ps.length];
+        for (int i = 0; i < ps.length; i++) {
+            double index = ps[i] * (n - 1);
+            int idx = (int) index;
+            double fraction = index - idx;
+            double lower = selected[2 * i];
+            if (idx >= n - 1 || fraction == 0) {
+                result[i] = lower;
+            } else {
+                result[i] = lower + fraction * (selected[2 * i + 1] - lower);
+            }
+        }
+        return result;
+    }
+
+    // Introselect over values[left, right] for the sorted ranks[lo, hi), all inside the range
+    private static void select(double[] values, int left, int right, int[] ranks, int lo, int hi, int depth) {
+        while (lo < hi) {
+            if (right - left < INSERTION_SORT_THRESHOLD) {
+                insertionSort(values, left, right);
+                return;
+            }
+            if (depth-- == 0) {
+                Arrays.sort(values, left, right + 1);
+                return;
+            }
+
+            // Three-way partition so runs of equal values end the search instead of slowing it down
+            double pivot = medianOfThree(values, left, (left + right) >>> 1, right);
+            int lt = left;
+            int gt = right;
+            int i = left;
+            while (i <= gt) {
+                int c = Double.compare(values[i], pivot);
+                if (c < 0) {
+                    swap(values, lt++, i++);
+                } else if (c > 0) {
+                    swap(values, i, gt--);
+                } else {
+                    i++;
+                }
+            }
+
+            // values[left, lt) < pivot, values[lt, gt] == pivot, values(gt, right] > pivot
+            int below = lo;
+            while (below < hi && ranks[below] < lt) {
+                below++;
+            }
+            int above = below;
+            while (above < hi && ranks[above] <= gt) {
+                above++;
+            }
+
+            // Recurse into the side with fewer ranks and loop on the other
+            if (below - lo < hi - above) {
+                select(values, left, lt - 1, ranks, lo, below, depth);
+                left = gt + 1;
+                lo = above;
+            } else {
+                select(values, gt + 1, right, ranks, above, hi, depth);
+                right = lt - 1;
+                hi = below;
+            }
+        }
+    }
+
+    private static double medianOfThree(double[] values, int a, int b, int c) {
+        double x = values[a];
+        double y = values[b];
+        double z = values[c];
+        if (Double.compare(x, y) > 0) {
+            double t = x;
+            x = y;
+            y = t;
+        }
+        if (Double.compare(y, z) > 0) {
+            y = z;
+        }
+        return Double.compare(x, y) > 0 ? x : y;
+    }
+
+    private static void insertionSort(double[] values, int left, int right) {
+        for (int i = left + 1; i <= right; i++) {
+            double value = values[i];
+            int j = i - 1;
+            while (j >= left && Double.compare(values[j], value) > 0) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = value;
+        }
+    }
+
+    private static void swap(double[] values, int i, int j) {
+        double t = values[i];
+        values[i] = values[j];
+        values[j] = t;
+    }
+
+    // Allow about twice the depth of a balanced partitioning before giving up on pivots
+    private static int depthLimit(int length) {
+        return 2 * (32 - Integer.numberOfLeadingZeros(length));
+    }
+
+    private static void checkRank(int from, int to, int k) {
+        if (k < from || k >= to) {
+            throw new IndexOutOfBoundsException("Rank " + k + " out of bounds for range [" + from + ", " + to + ")");
+        }
+    }
+
+    private static void checkRange(double[] values, int from, int to) {
+        if (from < 0 || to > values.length || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length " + values.length);
+        }
+    }
+}
@@ -1,52 +1,59 @@
 package com.statistics.utils;
 
-import java.util.Map;
-import java.util.HashMap;
-import java.util.Stack;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.LinkedList;
-import java.util.Collections;
 
 /**
  * <summary>
  * RBTree provides an implementation for storing data
+ * Duplicate values share a single node that counts its occurrences
  * </summary>
  */
  
-public class RBTree {
+public class RBTree implements DataStore {
     private Node root;
     private final Node NULLNODE;
     
     private int size;
+    private int nodeCount;
+    private long version;
 
     /**
      * Constructs a new RBTree instance
      */
     public RBTree() {
-        NULLNODE = new Node(null);
+        NULLNODE = new Node(0);
         NULLNODE.isRed = false;
+        NULLNODE.count = 0;
+        NULLNODE.size = 0;
         root = NULLNODE;
     }
     
     public Node getRoot() { return root; }
 
     // Insertions
-    public void insert(Double key) {
+    @Override
+    public void insert(double key) {
+        version++;
         Node node = root;
         Node parent = null;
 
         while (node != NULLNODE) {
             parent = node;
-            int cmp = key.compareTo(node.data);
+            // The value ends up in this subtree, so every subtree on the path grows
+            node.size++;
+            int cmp = Double.compare(key, node.data);
 
             if (cmp < 0) {
                 node = node.left;
             } else if (cmp > 0) {
                 node = node.right;
             } else {
-                // Put duplicates on the left
-                node = node.left;
+                // Duplicates only bump the count, the shape of the tree is unchanged
+                node.count++;
+                size++;
+                return;
             }
         }
 
@@ -58,8 +65,8 @@ public class RBTree {
         if (parent == null) {
             root = newNode;
         } else {
-            int cmp = key.compareTo(parent.data);
-            if (cmp <= 0) {
+            int cmp = Double.compare(key, parent.data);
+            if (cmp < 0) {
                 parent.left = newNode;
             } else {
                 parent.right = newNode;
@@ -69,6 +76,223 @@ public class RBTree {
         newNode.parent = parent;
         fixTree(newNode);
         size++;
+        nodeCount++;
+    }
+
+    /**
+     * Remove one occurrence of a value in O(log n).
+     * A duplicate only loses one from its count; the last occurrence removes the node and rebalances.
+     * @param key the value to remove
+     * @return true if the value was present
+     */
+    public boolean remove(double key) {
+        Node node = root;
+        while (node != NULLNODE) {
+            int cmp = Double.compare(key, node.data);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                node = node.right;
+            } else {
+                break;
+            }
+        }
+        if (node == NULLNODE) {
+            return false;
+        }
+        version++;
+        size--;
+        // Every subtree on the path to the root loses the occurrence
+        for (Node ancestor = node; ancestor != null; ancestor = ancestor.parent) {
+            ancestor.size--;
+        }
+        node.count--;
+        if (node.count > 0) {
+            return true;
+        }
+
+        // A node with two children takes over its successor's value, and the successor is unlinked instead
+        Node removed = node;
+        if (node.left != NULLNODE && node.right != NULLNODE) {
+            removed = node.right;
+            while (removed.left != NULLNODE) {
+                removed = removed.left;
+            }
+            // The successor's occurrences move up to node, out of the subtrees between them
+            for (Node ancestor = removed.parent; ancestor != node; ancestor = ancestor.parent) {
+                ancestor.size -= removed.count;
+            }
+            node.data = removed.data;
+            node.count = removed.count;
+        }
+
+        // The unlinked node has at most one child, which takes its place
+        Node child = removed.left != NULLNODE ? removed.left : removed.right;
+        child.parent = removed.parent;
+        if (removed.parent == null) {
+            root = child;
+        } else if (removed == removed.parent.left) {
+            removed.parent.left = child;
+        } else {
+            removed.parent.right = child;
+        }
+        if (!removed.isRed) {
+            fixRemoval(child);
+        }
+        NULLNODE.parent = null;
+        nodeCount--;
+        return true;
+    }
+
+    // Restore the black height after a black node was unlinked above node
+    private void fixRemoval(Node node) {
+        while (node != root && !node.isRed) {
+            Node parent = node.parent;
+            if (node == parent.left) {
+                Node sibling = parent.right;
+                if (sibling.isRed) {
+                    sibling.isRed = false;
+                    parent.isRed = true;
+                    rotateLeft(parent);
+                    sibling = parent.right;
+                }
+                if (!sibling.left.isRed && !sibling.right.isRed) {
+                    sibling.isRed = true;
+                    node = parent;
+                } else {
+                    if (!sibling.right.isRed) {
+                        sibling.left.isRed = false;
+                        sibling.isRed = true;
+                        rotateRight(sibling);
+                        sibling = parent.right;
+                    }
+                    sibling.isRed = parent.isRed;
+                    parent.isRed = false;
+                    sibling.right.isRed = false;
+                    rotateLeft(parent);
+                    node = root;
+                }
+            } else {
+                Node sibling = parent.left;
+                if (sibling.isRed) {
+                    sibling.isRed = false;
+                    parent.isRed = true;
+                    rotateRight(parent);
+                    sibling = parent.left;
+                }
+                if (!sibling.left.isRed && !sibling.right.isRed) {
+                    sibling.isRed = true;
+                    node = parent;
+                } else {
+                    if (!sibling.left.isRed) {
+                        sibling.right.isRed = false;
+                        sibling.isRed = true;
+                        rotateLeft(sibling);
+                        sibling = parent.left;
+                    }
+                    sibling.isRed = parent.isRed;
+                    parent.isRed = false;
+                    sibling.left.isRed = false;
+                    rotateRight(parent);
+                    node = root;
+                }
+            }
+        }
+        node.isRed = false;
+    }
+
+    /**
+     * Insert many values at once by rebuilding the tree bottom-up in O(n + m).
+     * Existing values are merged with the new ones, so the tree stays perfectly balanced.
+     * Batches too small to pay for a rebuild are inserted one by one in O(m log n) instead.
+     * @param sorted values in ascending order
+     * @param length the number of values to take from the start of the array
+     */
+    @Override
+    public void insertSorted(double[] sorted, int length) {
+        if (length < 0 || length > sorted.length) {
+            throw new IllegalArgumentException("Length must be between 0 and " + sorted.length);
+        }
+        if (length == 0) {
+            return;
+        }
+        version++;
+
+        // A batch that is small next to the tree is cheaper to insert one by one than to rebuild
+        if ((long) length * (32 - Integer.numberOfLeadingZeros(nodeCount)) < nodeCount) {
+            for (int j = 1; j < length; j++) {
+                if (Double.compare(sorted[j - 1], sorted[j]) > 0) {
+                    throw new IllegalArgumentException("Values must be sorted in ascending order");
+                }
+            }
+            for (int j = 0; j < length; j++) {
+                insert(sorted[j]);
+            }
+            return;
+        }
+
+        // Flatten the current tree into (value, count) runs
+        double[] oldValues = new double[nodeCount];
+        int[] oldCounts = new int[nodeCount];
+        flatten(oldValues, oldCounts);
+
+        // Merge both runs, collapsing duplicates into counts
+        double[] values = new double[nodeCount + length];
+        int[] counts = new int[nodeCount + length];
+        int distinct = 0;
+        int i = 0;
+        int j = 0;
+        while (i < nodeCount || j < length) {
+            double value;
+            int count;
+            if (j >= length || (i < nodeCount && Double.compare(oldValues[i], sorted[j]) <= 0)) {
+                value = oldValues[i];
+                count = oldCounts[i++];
+            } else {
+                if (j > 0 && Double.compare(sorted[j - 1], sorted[j]) > 0) {
+                    throw new IllegalArgumentException("Values must be sorted in ascending order");
+                }
+                value = sorted[j++];
+                count = 1;
+            }
+            if (distinct > 0 && Double.compare(values[distinct - 1], value) == 0) {
+                counts[distinct - 1] += count;
+            } else {
+                values[distinct] = value;
+                counts[distinct] = count;
+                distinct++;
+            }
+        }
+
+        // Every level above the deepest one is full, so the deepest level can be red
+        int redDepth = 31 - Integer.numberOfLeadingZeros(distinct);
+        root = buildBalanced(values, counts, 0, distinct - 1, 0, redDepth);
+        root.parent = null;
+        root.isRed = false;
+        size += length;
+        nodeCount = distinct;
+    }
+
+    // Build a balanced subtree from values[low, high]
+    private Node buildBalanced(double[] values, int[] counts, int low, int high, int depth, int redDepth) {
+        if (low > high) {
+            return NULLNODE;
+        }
+        int mid = (low + high) >>> 1;
+        Node node = new Node(values[mid]);
+        node.count = counts[mid];
+        node.isRed = depth == redDepth && depth > 0;
+
+        node.left = buildBalanced(values, counts, low, mid - 1, depth + 1, redDepth);
+        node.right = buildBalanced(values, counts, mid + 1, high, depth + 1, redDepth);
+        if (node.left != NULLNODE) {
+            node.left.parent = node;
+        }
+        if (node.right != NULLNODE) {
+            node.right.parent = node;
+        }
+        node.size = node.left.size + node.right.size + node.count;
+        return node;
     }
 
     // Fix issues in tree
@@ -140,6 +364,9 @@ public class RBTree {
 
         right.left = node;
         node.parent = right;
+
+        right.size = node.size;
+        node.size = node.left.size + node.right.size + node.count;
     }
 
     private void rotateRight(Node node) {
@@ -165,6 +392,9 @@ public class RBTree {
 
         left.right = node;
         node.parent = left;
+
+        left.size = node.size;
+        node.size = node.left.size + node.right.size + node.count;
     }
 
     // Refrences
@@ -182,33 +412,31 @@ public class RBTree {
     }
 
     /**
-     * Convert Red Black Tree to frequency map
-     * @return HashMap with entries representing <number, frequency>
+     * Convert Red Black Tree to a frequency table
+     * @return FrequencyTable with one entry per node, in ascending order
      */
-    public HashMap<Double, Integer> toFrequencyMap() {
-        HashMap<Double, Integer> freqMap = new HashMap<>();
-        populateFrequencyMap(freqMap);
-        return freqMap;
+    @Override
+    public FrequencyTable toFrequencyTable() {
+        double[] values = new double[nodeCount];
+        int[] counts = new int[nodeCount];
+        flatten(values, counts);
+        return new FrequencyTable(values, counts, nodeCount);
     }
 
-    /**
-     * Populate frequency map with entries
-     * @param freqMap the frequency map to populate
-     */
-    private void populateFrequencyMap(HashMap<Double, Integer> freqMap) {
-        Stack<Node> stack = new Stack<>();
+    // Copy each node's value and count in order into arrays of nodeCount entries
+    private void flatten(double[] values, int[] counts) {
+        Deque<Node> stack = new ArrayDeque<>();
         Node current = root;
-
+        int index = 0;
         while (current != NULLNODE || !stack.isEmpty()) {
             while (current != NULLNODE) {
                 stack.push(current);
                 current = current.left;
             }
-
             current = stack.pop();
-            if (current.data != null) {
-                freqMap.put(current.data, freqMap.getOrDefault(current.data, 0) + 1);
-            }
+            values[index] = current.data;
+            counts[index] = current.count;
+            index++;
             current = current.right;
         }
     }
@@ -217,10 +445,36 @@ public class RBTree {
      * Convert Red Black Tree to an ArrayList
      * @return ArrayList representation of Red Black Tree
      */
+    @Override
     public ArrayList<Double> toArrayList() {
-        ArrayList<Double> result = new ArrayList<>();
-        Deque<Node> stack = new LinkedList<>();
+        ArrayList<Double> result = new ArrayList<>(size);
+        Deque<Node> stack = new ArrayDeque<>();
+        Node current = root;
+
+        while (current != NULLNODE || !stack.isEmpty()) {
+            while (current != NULLNODE) {
+                stack.push(current);
+                current = current.left;
+            }
+            current = stack.pop();
+            for (int i = 0; i < current.count; i++) {
+                result.add(current.data);
+            }
+            current = current.right;
+        }
+        return result;
+    }
+
+    /**
+     * Convert Red Black Tree to a primitive array
+     * @return array containing every value in ascending order
+     */
+    @Override
+    public double[] toSortedArray() {
+        double[] result = new double[size];
+        Deque<Node> stack = new ArrayDeque<>();
         Node current = root;
+        int index = 0;
 
         while (current != NULLNODE || !stack.isEmpty()) {
             while (current != NULLNODE) {
@@ -228,19 +482,20 @@ public class RBTree {
                 current = current.left;
             }
             current = stack.pop();
-            result.add(current.data);
+            for (int i = 0; i < current.count; i++) {
+                result[index++] = current.data;
+            }
             current = current.right;
         }
-        
-        Collections.sort(result);
         return result;
     }
 
     // Check if node exists in tree
-    public boolean contains(Double key) {
+    @Override
+    public boolean contains(double key) {
         Node node = root;
         while (node != NULLNODE) {
-            int cmp = key.compareTo(node.data);
+            int cmp = Double.compare(key, node.data);
             if (cmp == 0) {
                 return true;
             } else if (cmp < 0) {
@@ -252,6 +507,50 @@ public class RBTree {
         return false;
     }
 
+    /**
+     * Find the k-th smallest value in O(log n) using subtree sizes
+     * @param k zero-based position in ascending order
+     * @return the value at position k
+     */
+    @Override
+    public double select(int k) {
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("Index " + k + " out of bounds for size " + size);
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = node.left.size;
+            if (k < leftSize) {
+                node = node.left;
+            } else if (k < leftSize + node.count) {
+                return node.data;
+            } else {
+                k -= leftSize + node.count;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Count the values strictly less than key in O(log n) using subtree sizes
+     * @param key the value to rank
+     * @return the number of values smaller than key
+     */
+    @Override
+    public int rank(double key) {
+        int rank = 0;
+        Node node = root;
+        while (node != NULLNODE) {
+            if (Double.compare(key, node.data) <= 0) {
+                node = node.left;
+            } else {
+                rank += node.left.size + node.count;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
     // Height
     public int getHeight() {
         return getHeight(root);
@@ -266,7 +565,19 @@ public class RBTree {
     }
     
     // Size
+    @Override
     public int getSize(){
       return size;
     }
+
+    // Each distinct value has one node
+    @Override
+    public int getDistinctCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
 }
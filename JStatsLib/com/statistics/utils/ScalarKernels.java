@@ -0,0 +1,61 @@
+package com.statistics.utils;
+
+/**
+ * <summary>
+ * Plain Java implementation of the kernels, used when the Vector API is not available.
+ * Long ranges are reduced in blocks whose partial results are combined with compensated sums.
+ * </summary>
+ */
+class ScalarKernels implements DoubleKernels {
+    // Values per block; partial sums of a block are small enough to add without losing digits
+    static final int BLOCK_SIZE = 1024;
+
+    @Override
+    public double sum(double[] values, int from, int to) {
+        return Summation.sum(values, from, to);
+    }
+
+    @Override
+    public void centralMoments(double[] values, int from, int to, double center, double[] out) {
+        CompensatedSum m2 = new CompensatedSum();
+        CompensatedSum m3 = new CompensatedSum();
+        CompensatedSum m4 = new CompensatedSum();
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int end = Math.min(to, start + BLOCK_SIZE);
+            double s2 = 0;
+            double s3 = 0;
+            double s4 = 0;
+            for (int i = start; i < end; i++) {
+                double value = values[i];
+                double d = value - center;
+                double d2 = d * d;
+                s2 += d2;
+                s3 += d2 * d;
+                s4 += d2 * d2;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            m2.add(s2);
+            m3.add(s3);
+            m4.add(s4);
+        }
+        out[0] = m2.getSum();
+        out[1] = m3.getSum();
+        out[2] = m4.getSum();
+        out[3] = min;
+        out[4] = max;
+    }
+
+    @Override
+    public double gaussianKernelSum(double[] values, int from, int to, double x, double bandwidth) {
+        double scale = 1 / bandwidth;
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            double z = (x - values[i]) * scale;
+            sum += Math.exp(-0.5 * z * z);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,266 @@
+package com.statistics.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * <summary>
+ * SortedColumn stores data as a single primitive double[] kept in ascending order.
+ * Values cost 8 bytes each instead of a boxed Double plus node pointers, and all
+ * reads are sequential over one array.
+ * New values are appended and merged into the sorted part on the next read.
+ * While nothing has been sorted yet, order statistics are found by selection in O(n)
+ * instead, so a median or a few percentiles of freshly loaded data never pay for a full sort.
+ * </summary>
+ */
+public class SortedColumn implements DataStore {
+    private static final int DEFAULT_CAPACITY = 16;
+    // Selections answered on unsorted data before sorting becomes the cheaper option
+    private static final int MAX_UNSORTED_SELECTIONS = 8;
+
+    private double[] values;
+    private int size;
+    // values[0, sortedSize) is in ascending order, the rest is pending
+    private int sortedSize;
+    private long version;
+    private int unsortedSelections;
+
+    /**
+     * Constructs a new, empty SortedColumn
+     */
+    public SortedColumn() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new, empty SortedColumn with room for the given number of values
+     * @param initialCapacity the number of values to reserve space for
+     */
+    public SortedColumn(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        values = new double[Math.max(initialCapacity, 1)];
+    }
+
+    // Insertions
+    @Override
+    public void insert(double key) {
+        version++;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, grow(size + 1));
+        }
+        values[size++] = key;
+    }
+
+    /**
+     * Insert many values at once by merging them into the sorted array in O(n + m)
+     * @param sorted values in ascending order
+     * @param length the number of values to take from the start of the array
+     */
+    @Override
+    public void insertSorted(double[] sorted, int length) {
+        if (length < 0 || length > sorted.length) {
+            throw new IllegalArgumentException("Length must be between 0 and " + sorted.length);
+        }
+        for (int j = 1; j < length; j++) {
+            if (Double.compare(sorted[j - 1], sorted[j]) > 0) {
+                throw new IllegalArgumentException("Values must be sorted in ascending order");
+            }
+        }
+        version++;
+        ensureSorted();
+        if (size + length > values.length) {
+            values = Arrays.copyOf(values, grow(size + length));
+        }
+
+        // Merge from the back so existing values move at most once
+        int i = size - 1;
+        int j = length - 1;
+        int k = size + length - 1;
+        while (j >= 0) {
+            if (i >= 0 && Double.compare(values[i], sorted[j]) > 0) {
+                values[k--] = values[i--];
+            } else {
+                values[k--] = sorted[j--];
+            }
+        }
+        size += length;
+        sortedSize = size;
+    }
+
+    /**
+     * Append many values without ordering them; they are sorted or selected from on the next read
+     * @param values the values to insert
+     * @param length the number of values to take from the start of the array
+     */
+    @Override
+    public void insertAll(double[] values, int length) {
+        if (length < 0 || length > values.length) {
+            throw new IllegalArgumentException("Length must be between 0 and " + values.length);
+        }
+        version++;
+        if (size + length > this.values.length) {
+            this.values = Arrays.copyOf(this.values, grow(size + length));
+        }
+        System.arraycopy(values, 0, this.values, size, length);
+        size += length;
+    }
+
+    private int grow(int minCapacity) {
+        int newCapacity = values.length + (values.length >> 1);
+        if (newCapacity < minCapacity || newCapacity < 0) {
+            newCapacity = minCapacity;
+        }
+        return newCapacity;
+    }
+
+    // Merge pending values into the sorted prefix
+    private void ensureSorted() {
+        if (sortedSize == size) {
+            return;
+        }
+        Arrays.sort(values, sortedSize, size);
+
+        if (sortedSize > 0 && Double.compare(values[sortedSize - 1], values[sortedSize]) > 0) {
+            // Merge from the back so the prefix never needs to move twice
+            double[] pending = Arrays.copyOfRange(values, sortedSize, size);
+            int i = sortedSize - 1;
+            int j = pending.length - 1;
+            int k = size - 1;
+            while (j >= 0) {
+                if (i >= 0 && Double.compare(values[i], pending[j]) > 0) {
+                    values[k--] = values[i--];
+                } else {
+                    values[k--] = pending[j--];
+                }
+            }
+        }
+        sortedSize = size;
+    }
+
+    /**
+     * Returns the value at the given position in ascending order
+     * @param index position between 0 and getSize() - 1
+     * @return the value at that position
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        ensureSorted();
+        return values[index];
+    }
+
+    @Override
+    public double select(int k) {
+        if (useSelection()) {
+            if (k < 0 || k >= size) {
+                throw new IndexOutOfBoundsException("Index " + k + " out of bounds for size " + size);
+            }
+            return QuantileSelector.select(values, 0, size, k);
+        }
+        return get(k);
+    }
+
+    @Override
+    public double[] selectAll(int... ks) {
+        if (useSelection()) {
+            return QuantileSelector.selectAll(values, 0, size, ks);
+        }
+        ensureSorted();
+        double[] result = new double[ks.length];
+        for (int i = 0; i < ks.length; i++) {
+            result[i] = get(ks[i]);
+        }
+        return result;
+    }
+
+    // Select in place while no prefix is sorted, until repeated queries make sorting pay off
+    private boolean useSelection() {
+        if (sortedSize > 0 || sortedSize == size || unsortedSelections >= MAX_UNSORTED_SELECTIONS) {
+            return false;
+        }
+        unsortedSelections++;
+        return true;
+    }
+
+    @Override
+    public int rank(double key) {
+        ensureSorted();
+        // Binary search for the first value that is not smaller than key
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(values[mid], key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Check if value exists in column
+    @Override
+    public boolean contains(double key) {
+        ensureSorted();
+        return Arrays.binarySearch(values, 0, size, key) >= 0;
+    }
+
+    @Override
+    public FrequencyTable toFrequencyTable() {
+        ensureSorted();
+        return FrequencyTable.ofSorted(values, size);
+    }
+
+    @Override
+    public ArrayList<Double> toArrayList() {
+        ensureSorted();
+        ArrayList<Double> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(values[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public double[] toSortedArray() {
+        ensureSorted();
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Releases unused capacity at the end of the backing array
+     */
+    public void trimToSize() {
+        if (values.length > size) {
+            values = Arrays.copyOf(values, Math.max(size, 1));
+        }
+    }
+
+    // Size
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    // Count the runs of equal values in O(n)
+    @Override
+    public int getDistinctCount() {
+        ensureSorted();
+        int distinct = size > 0 ? 1 : 0;
+        for (int i = 1; i < size; i++) {
+            if (Double.compare(values[i - 1], values[i]) != 0) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+}
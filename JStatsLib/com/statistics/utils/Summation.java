@@ -0,0 +1,87 @@
+package com.statistics.utils;
+
+/**
+ * <summary>
+ * Summation adds up ranges of primitive arrays more accurately than a plain loop.
+ * Pairwise summation splits the range in halves down to small blocks, so the rounding error
+ * grows with log(n) instead of n, at the speed of a simple loop. Compensated summation
+ * (Neumaier) is slower but accurate to about one rounding regardless of length.
+ * Both give the same result for the same input on every run.
+ * </summary>
+ */
+public final class Summation {
+    // Blocks this small are summed directly; large enough to amortize the recursion
+    private static final int BLOCK_SIZE = 128;
+
+    private Summation() {
+    }
+
+    /**
+     * Sum values[from, to) with blocked pairwise summation
+     * @param values the array to sum
+     * @param from index of the first value
+     * @param to index after the last value
+     * @return the sum of the range
+     */
+    public static double sum(double[] values, int from, int to) {
+        checkRange(values, from, to);
+        return pairwise(values, from, to);
+    }
+
+    /**
+     * Sum values[from, to) with Neumaier compensated summation
+     * @param values the array to sum
+     * @param from index of the first value
+     * @param to index after the last value
+     * @return the sum of the range
+     */
+    public static double compensatedSum(double[] values, int from, int to) {
+        checkRange(values, from, to);
+        double sum = 0;
+        double compensation = 0;
+        for (int i = from; i < to; i++) {
+            double value = values[i];
+            double t = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - t) + value;
+            } else {
+                compensation += (value - t) + sum;
+            }
+            sum = t;
+        }
+        return sum + compensation;
+    }
+
+    private static double pairwise(double[] values, int from, int to) {
+        if (to - from <= BLOCK_SIZE) {
+            return block(values, from, to);
+        }
+        int mid = (from + to) >>> 1;
+        return pairwise(values, from, mid) + pairwise(values, mid, to);
+    }
+
+    // Four independent accumulators break the dependency chain so the loop can be pipelined
+    private static double block(double[] values, int from, int to) {
+        double s0 = 0;
+        double s1 = 0;
+        double s2 = 0;
+        double s3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            s0 += values[i];
+            s1 += values[i + 1];
+            s2 += values[i + 2];
+            s3 += values[i + 3];
+        }
+        for (; i < to; i++) {
+            s0 += values[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static void checkRange(double[] values, int from, int to) {
+        if (from < 0 || to > values.length || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length " + values.length);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.awt.BasicStroke;
 import java.util.ArrayList;
 
 import com.statistics.JStatsLib;
+import com.statistics.analysis.Summary;
 
 public class BoxPlot extends JPanel {
    
@@ -24,11 +25,12 @@ public class BoxPlot extends JPanel {
    public BoxPlot(JStatsLib stats, String title, Color[] theme) {
       this.stats = stats;
       this.values = stats.toList();
-      this.median = stats.median();
-      this.iqr = stats.iqr();
-      this.percentiles = stats.findQuarterPercentiles();
-      this.min = stats.min();
-      this.max = stats.max();
+      Summary summary = stats.summary();
+      this.median = summary.getMedian();
+      this.iqr = summary.getIqr();
+      this.percentiles = summary.getQuarterPercentiles();
+      this.min = summary.getMin();
+      this.max = summary.getMax();
       this.title = title;
       this.theme = theme;
    }
@@ -10,11 +10,9 @@ import java.awt.FontMetrics;
 import java.awt.BasicStroke;
 import java.awt.RenderingHints;
 import java.awt.geom.Path2D;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-
 import com.statistics.JStatsLib;
+import com.statistics.analysis.Summary;
+import com.statistics.utils.FrequencyTable;
 import com.statistics.utils.Themes;
 
 /**
@@ -26,7 +24,7 @@ import com.statistics.utils.Themes;
 public class CumulativeFrequencyGraph extends JPanel {
    
    private JStatsLib stats;
-   private ArrayList<Double> values;
+   private FrequencyTable frequencies;
    private double min;
    private double max;
    private String title;
@@ -39,10 +37,10 @@ public class CumulativeFrequencyGraph extends JPanel {
    
    public CumulativeFrequencyGraph(JStatsLib stats, String title, Color[] theme) {
       this.stats = stats;
-      this.values = stats.toList();
-      Collections.sort(this.values);
-      this.min = stats.min();
-      this.max = stats.max();
+      this.frequencies = stats.toFrequencyTable();
+      Summary summary = stats.summary();
+      this.min = summary.getMin();
+      this.max = summary.getMax();
       this.title = title;
       this.theme = theme;
    }
@@ -65,32 +63,22 @@ public class CumulativeFrequencyGraph extends JPanel {
       g2d.drawLine(leftPadding, topPadding, leftPadding, height - bottomPadding);
       g2d.drawLine(leftPadding, height - bottomPadding, width - rightPadding, height - bottomPadding);
       
-      ArrayList<Double> uniqueValues = new ArrayList<>();
-      for (Double val : stats.toList()) {
-         if (!uniqueValues.contains(val)) {
-             uniqueValues.add(val);
-         }
-      }
-      Collections.sort(uniqueValues);
-      
-      // Add frequency to ArrayList of frequencies for each item in dataset
-      int totalCount = stats.size();
-      ArrayList<Double> cumulativePercentages = new ArrayList<>();
-      int runningCount = 0;
-      HashMap<Double, Integer> freqMap = stats.toFrequencyMap();
-      for (Double value : uniqueValues) {
-         int frequency = freqMap.get(value);
-         runningCount += frequency;
-         double percentage = (double) runningCount / totalCount;
-         cumulativePercentages.add(percentage);
+      // Cumulative percentage at each distinct value, which the table lists in ascending order
+      int uniqueCount = frequencies.size();
+      long totalCount = frequencies.getTotal();
+      double[] cumulativePercentages = new double[uniqueCount];
+      long runningCount = 0;
+      for (int i = 0; i < uniqueCount; i++) {
+         runningCount += frequencies.getCount(i);
+         cumulativePercentages[i] = (double) runningCount / totalCount;
       }
       
       // Draw graph
       Path2D path = new Path2D.Double();
       boolean started = false;
-      for (int i = 0; i < uniqueValues.size(); i++) {
-         double value = uniqueValues.get(i);
-         double percentage = cumulativePercentages.get(i);
+      for (int i = 0; i < uniqueCount; i++) {
+         double value = frequencies.getValue(i);
+         double percentage = cumulativePercentages[i];
          int x = GraphUtil.calcValueToX(value, min, max, leftPadding, rightPadding, width);
          int y = GraphUtil.percentToY(percentage, height, topPadding, bottomPadding);
          if (!started) {
@@ -106,8 +94,8 @@ public class CumulativeFrequencyGraph extends JPanel {
       g2d.draw(path);
       
       Path2D fillPath = new Path2D.Double(path);
-      if (!uniqueValues.isEmpty()) {
-         fillPath.lineTo(GraphUtil.calcValueToX(uniqueValues.get(uniqueValues.size()-1), min, max, leftPadding, rightPadding, width), height - bottomPadding);
+      if (uniqueCount > 0) {
+         fillPath.lineTo(GraphUtil.calcValueToX(frequencies.getValue(uniqueCount - 1), min, max, leftPadding, rightPadding, width), height - bottomPadding);
          fillPath.lineTo(leftPadding, height - bottomPadding);
       }
       fillPath.closePath();
@@ -117,9 +105,9 @@ public class CumulativeFrequencyGraph extends JPanel {
       g2d.fill(fillPath);
       
       g2d.setColor(theme[1]);
-      for (int i = 0; i < uniqueValues.size(); i++) {
-         double value = uniqueValues.get(i);
-         double percentage = cumulativePercentages.get(i);
+      for (int i = 0; i < uniqueCount; i++) {
+         double value = frequencies.getValue(i);
+         double percentage = cumulativePercentages[i];
          int x = GraphUtil.calcValueToX(value, min, max, leftPadding, rightPadding, width);
          int y = GraphUtil.percentToY(percentage, height, topPadding, bottomPadding);
          g2d.fillOval(x - 4, y - 4, 8, 8);
@@ -163,14 +151,15 @@ public class CumulativeFrequencyGraph extends JPanel {
       
       // Key statistics
       g2d.setFont(new Font("Arial", Font.PLAIN, 12));
-      g2d.drawString("N = " + stats.size(), width - 150, topPadding + 20);
+      Summary summary = stats.summary();
+      g2d.drawString("N = " + summary.getCount(), width - 150, topPadding + 20);
       g2d.drawString("Min: " + String.format("%.2f", min), width - 150, topPadding + 40);
       g2d.drawString("Max: " + String.format("%.2f", max), width - 150, topPadding + 60);
-      g2d.drawString("Mean: " + String.format("%.2f", stats.mean()), width - 150, topPadding + 80);
-      g2d.drawString("StdDev: " + String.format("%.2f", stats.stddev()), width - 150, topPadding + 100);
+      g2d.drawString("Mean: " + String.format("%.2f", summary.getMean()), width - 150, topPadding + 80);
+      g2d.drawString("StdDev: " + String.format("%.2f", summary.getStddev()), width - 150, topPadding + 100);
       
       // Median and quartile markers
-      double median = stats.median();
+      double median = summary.getMedian();
       int medianX = GraphUtil.calcValueToX(median, min, max, leftPadding, rightPadding, width);
       int medianY = GraphUtil.percentToY(0.5, height, topPadding, bottomPadding);
       g2d.setColor(theme[2]);
@@ -181,9 +170,8 @@ public class CumulativeFrequencyGraph extends JPanel {
       g2d.setFont(new Font("Arial", Font.ITALIC, 12));
       g2d.drawString("Median: " + String.format("%.2f", median), medianX - 30, medianY - 10);
       
-      double[] quartiles = stats.findQuarterPercentiles();
-      double q1 = quartiles[0];
-      double q3 = quartiles[1];
+      double q1 = summary.getQ1();
+      double q3 = summary.getQ3();
       int q1X = GraphUtil.calcValueToX(q1, min, max, leftPadding, rightPadding, width);
       int q1Y = GraphUtil.percentToY(0.25, height, topPadding, bottomPadding);
       int q3X = GraphUtil.calcValueToX(q3, min, max, leftPadding, rightPadding, width);
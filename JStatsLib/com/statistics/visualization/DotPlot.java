@@ -9,10 +9,9 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.BasicStroke;
 import java.awt.RenderingHints;
-import java.util.HashMap;
-import java.util.Map;
-
 import com.statistics.JStatsLib;
+import com.statistics.analysis.Summary;
+import com.statistics.utils.FrequencyTable;
 
 public class DotPlot extends JPanel {
 	/**
@@ -22,7 +21,7 @@ public class DotPlot extends JPanel {
 	 */
    
    private JStatsLib stats;
-   private java.util.ArrayList<Double> values;
+   private FrequencyTable frequencies;
    private double min;
    private double max;
    private String title;
@@ -36,9 +35,10 @@ public class DotPlot extends JPanel {
    
    public DotPlot(JStatsLib stats, String title, Color[] theme) {
       this.stats = stats;
-      this.values = stats.toList();
-      this.min = stats.min();
-      this.max = stats.max();
+      this.frequencies = stats.toFrequencyTable();
+      Summary summary = stats.summary();
+      this.min = summary.getMin();
+      this.max = summary.getMax();
       this.title = title;
       this.theme = theme;
    }
@@ -73,18 +73,21 @@ public class DotPlot extends JPanel {
       double magnitude = Math.pow(10, Math.floor(Math.log10(binWidth)));
       binWidth = Math.ceil(binWidth / magnitude) * magnitude;
       
-      HashMap<Double, Integer> frequencyMap = stats.toFrequencyMap();
-      Map<Double, Integer> binCounts = new java.util.HashMap<>();
-      for (Map.Entry<Double, Integer> entry : frequencyMap.entrySet()) {
-         double value = entry.getKey();
-         int count = entry.getValue();
-         double binValue = roundToBin(value, binWidth);
-         binCounts.put(binValue, binCounts.getOrDefault(binValue, 0) + count);
+      // Values are in ascending order, so values rounding to the same bin are adjacent
+      double[] binValues = new double[frequencies.size()];
+      int[] binCounts = new int[frequencies.size()];
+      int numBins = 0;
+      for (int i = 0; i < frequencies.size(); i++) {
+         double binValue = roundToBin(frequencies.getValue(i), binWidth);
+         if (numBins == 0 || binValues[numBins - 1] != binValue) {
+            binValues[numBins++] = binValue;
+         }
+         binCounts[numBins - 1] += frequencies.getCount(i);
       }
       
       int maxCount = 0;
-      for (Integer count : binCounts.values()) {
-         maxCount = Math.max(maxCount, count);
+      for (int i = 0; i < numBins; i++) {
+         maxCount = Math.max(maxCount, binCounts[i]);
       }
       
       int availableHeight = height - topPadding - bottomPadding;
@@ -92,9 +95,9 @@ public class DotPlot extends JPanel {
          dotSize = Math.max(4, Math.min(dotSize, availableHeight / maxDotsInColumn));
       }
       
-      for (Map.Entry<Double, Integer> entry : binCounts.entrySet()) {
-         double binValue = entry.getKey();
-         int count = entry.getValue();
+      for (int bin = 0; bin < numBins; bin++) {
+         double binValue = binValues[bin];
+         int count = binCounts[bin];
          int x = valueToX(binValue, scaleFactor);
          
          for (int i = 0; i < count; i++) {
@@ -132,10 +135,10 @@ public class DotPlot extends JPanel {
       }
       
       // Statistical markers
-      double median = stats.median();
-      double[] quartiles = stats.findQuarterPercentiles();
-      double q1 = quartiles[0];
-      double q3 = quartiles[1];
+      Summary summary = stats.summary();
+      double median = summary.getMedian();
+      double q1 = summary.getQ1();
+      double q3 = summary.getQ3();
       int medianX = valueToX(median, scaleFactor);
       int q1X = valueToX(q1, scaleFactor);
       int q3X = valueToX(q3, scaleFactor);
@@ -161,8 +164,8 @@ public class DotPlot extends JPanel {
       int statsX = width - padding - 150;
       int statsY = topPadding;
       int lineHeight = 20;
-      g2d.drawString("N = " + stats.size(), statsX, statsY);
-      g2d.drawString("Mean: " + String.format("%.2f", stats.mean()), statsX, statsY + lineHeight);
+      g2d.drawString("N = " + summary.getCount(), statsX, statsY);
+      g2d.drawString("Mean: " + String.format("%.2f", summary.getMean()), statsX, statsY + lineHeight);
    }
    
    public void showGraph() {
@@ -13,6 +13,7 @@ import java.awt.geom.Arc2D;
 import java.awt.geom.Path2D;
 
 import com.statistics.JStatsLib;
+import com.statistics.analysis.Summary;
 
 public class GraphUtil {
 
@@ -117,6 +118,51 @@ public class GraphUtil {
         }
     }
 
+    /**
+     * Draws a logarithmic X-axis with a tick at every power of ten between min and max,
+     * or at the ends when the range spans less than a decade
+     * @param g2d Graphics2D object
+     * @param width Panel width
+     * @param min Minimum data value, above zero
+     * @param max Maximum data value
+     * @param axisY Y-coordinate to draw the axis
+     * @param leftPadding Left padding
+     * @param rightPadding Right padding
+     * @param theme Color theme
+     */
+    public static void drawLogXAxis(Graphics2D g2d, int width, 
+                                    double min, double max, int axisY, 
+                                    int leftPadding, int rightPadding, Color[] theme) {
+        g2d.setColor(theme[4]);
+        g2d.drawLine(leftPadding, axisY, width - rightPadding, axisY);
+        g2d.setFont(LABEL_FONT);
+        int drawingWidth = width - (leftPadding + rightPadding);
+        FontMetrics fm = g2d.getFontMetrics();
+
+        double firstDecade = Math.ceil(Math.log10(min));
+        double lastDecade = Math.floor(Math.log10(max));
+        double[] ticks;
+        if (firstDecade <= lastDecade) {
+            ticks = new double[(int) (lastDecade - firstDecade) + 1];
+            for (int i = 0; i < ticks.length; i++) {
+                ticks[i] = Math.pow(10, firstDecade + i);
+            }
+        } else {
+            ticks = new double[] {min, max};
+        }
+        for (double value : ticks) {
+            int xPos = logValueToX(value, min, max, drawingWidth, leftPadding);
+            g2d.drawLine(xPos, axisY, xPos, axisY + 5);
+            String label = String.format("%.3g", value);
+            if (label.contains(".")) {
+                // Drop the zeros %g pads with, e.g. 0.00100 to 0.001 and 1.00e+04 to 1e+04
+                label = label.replaceAll("0+(?=e|$)", "").replaceAll("\\.(?=e|$)", "");
+            }
+            int labelWidth = fm.stringWidth(label);
+            g2d.drawString(label, xPos - labelWidth / 2, axisY + 20);
+        }
+    }
+
     /**
      * Draws the Y-axis with ticks and labels
      * @param g2d Graphics2D object
@@ -174,6 +220,20 @@ public class GraphUtil {
         return leftPadding + (int)((val - min) * scaleFactor);
     }
     
+    /**
+     * Converts a data value to its X coordinate on a logarithmic axis
+     * @param val Data value, above zero
+     * @param min Minimum value of the axis, above zero
+     * @param max Maximum value of the axis
+     * @param drawingWidth Available drawing width
+     * @param leftPadding Left padding
+     * @return X coordinate
+     */
+    public static int logValueToX(double val, double min, double max, int drawingWidth, int leftPadding) {
+        double scaleFactor = drawingWidth / Math.log(max / min);
+        return leftPadding + (int)(Math.log(val / min) * scaleFactor);
+    }
+    
     /**
      * Converts a frequency value to its Y coordinate for bar heights
      * @param val Frequency count
@@ -229,11 +289,12 @@ public class GraphUtil {
         g2d.setColor(theme[4]);
         g2d.setFont(LABEL_FONT);
         int lineHeight = 20;
-        g2d.drawString("N = " + stats.size(), x, y);
-        g2d.drawString("Mean: " + String.format("%.2f", stats.mean()), x, y + lineHeight);
-        g2d.drawString("StdDev: " + String.format("%.2f", stats.stddev()), x, y + lineHeight * 2);
-        g2d.drawString("Min: " + String.format("%.2f", stats.min()), x, y + lineHeight * 3);
-        g2d.drawString("Max: " + String.format("%.2f", stats.max()), x, y + lineHeight * 4);
+        Summary summary = stats.summary();
+        g2d.drawString("N = " + summary.getCount(), x, y);
+        g2d.drawString("Mean: " + String.format("%.2f", summary.getMean()), x, y + lineHeight);
+        g2d.drawString("StdDev: " + String.format("%.2f", summary.getStddev()), x, y + lineHeight * 2);
+        g2d.drawString("Min: " + String.format("%.2f", summary.getMin()), x, y + lineHeight * 3);
+        g2d.drawString("Max: " + String.format("%.2f", summary.getMax()), x, y + lineHeight * 4);
     }
     
     /**
@@ -6,14 +6,15 @@ import java.awt.Graphics2D;
 import java.awt.Color;
 import java.awt.FontMetrics;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
 
 import com.statistics.JStatsLib;
+import com.statistics.analysis.LogHistogram;
+import com.statistics.analysis.Summary;
 
 /**
  * <summary>
- * A histogram to represent your data
+ * A histogram to represent your data.
+ * Bins can be spaced evenly or on a log scale, and a LogHistogram can be drawn directly.
  * </summary>
  */
 
@@ -26,20 +27,48 @@ public class Histogram extends JPanel {
    private String title;
    private Color[] theme;
    private int numBins = 10; // Default number of bins
+   private LogHistogram distribution;
+   private boolean logScale;
    
    public Histogram(JStatsLib stats, int bins, String title, Color[] theme) {
       this.stats = stats;
       this.values = stats.toList();
-      this.min = stats.min();
-      this.max = stats.max();
+      Summary summary = stats.summary();
+      this.min = summary.getMin();
+      this.max = summary.getMax();
       this.title = title;
       this.theme = theme;
+      this.numBins = checkBins(bins);
+   }
+   
+   /**
+    * Draws a LogHistogram, such as a latency distribution, with bins evenly spaced on a log scale.
+    * Only the histogram's buckets are read, so any number of recorded values can be drawn.
+    * 
+    * @param distribution The histogram to draw, which must not be empty
+    * @param bins The number of bins
+    * @param title The title of the graph
+    * @param theme The color theme
+    */
+   public Histogram(LogHistogram distribution, int bins, String title, Color[] theme) {
+      if (distribution.getCount() == 0) {
+         throw new IllegalArgumentException("Cannot draw an empty LogHistogram");
+      }
+      this.distribution = distribution;
+      this.min = distribution.getMin();
+      this.max = distribution.getMax();
+      this.title = title;
+      this.theme = theme;
+      this.numBins = checkBins(bins);
+      this.logScale = true;
+   }
+   
+   private static int checkBins(int bins) {
       if(bins < 1){
          System.out.println("HISTOGRAM ERROR: numBins must be >= 1. Setting numBins to 10");
-         this.numBins = 10;
-      } else {
-         this.numBins = bins;
+         return 10;
       }
+      return bins;
    }
    
    public void setBinSize(int bins) {
@@ -53,10 +82,88 @@ public class Histogram extends JPanel {
       return this.numBins;
    }
    
+   /**
+    * Spaces the bins evenly on a log scale, so data spanning several orders of magnitude
+    * such as latencies keeps detail at both ends. Requires all values to be above zero.
+    * 
+    * @param logScale true for log-scaled bins, false for bins of equal width
+    */
+   public void setLogScale(boolean logScale) {
+      if (logScale && distribution == null && min <= 0) {
+         System.out.println("HISTOGRAM ERROR: log scale requires values above 0. Keeping linear bins");
+         return;
+      }
+      this.logScale = logScale;
+      repaint();
+   }
+   
+   public boolean isLogScale() {
+      return this.logScale;
+   }
+   
    private int freqToY(int val, int height, int maxFreq) {
       return GraphUtil.freqToY(val, height, maxFreq);
    }
    
+   // Bin edges spaced evenly over the range, or evenly over its logarithm
+   private double[] binEdges() {
+      double[] edges = new double[numBins + 1];
+      if (logScale) {
+         double low = logMin();
+         double ratio = Math.pow(logMax() / low, 1.0 / numBins);
+         for (int i = 0; i < numBins; i++) {
+            edges[i] = low * Math.pow(ratio, i);
+         }
+         edges[numBins] = logMax();
+      } else {
+         double binWidth = (max - min) / numBins;
+         for (int i = 0; i < numBins; i++) {
+            edges[i] = min + (i * binWidth);
+         }
+         edges[numBins] = max;
+      }
+      return edges;
+   }
+   
+   // Zero cannot be placed on a log axis, so it is drawn in the first bin
+   private double logMin() {
+      return min > 0 ? min : distribution.getLowestDiscernibleValue();
+   }
+   
+   private double logMax() {
+      return max > logMin() ? max : logMin() * 10;
+   }
+   
+   private long[] countBins(double[] edges) {
+      if (distribution != null) {
+         double[] countEdges = edges.clone();
+         countEdges[0] = Math.min(edges[0], min);
+         return distribution.binCounts(countEdges);
+      }
+      long[] bins = new long[numBins];
+      double range = logScale ? Math.log(edges[numBins] / edges[0]) : max - min;
+      for (Double value : values) {
+         if (value >= min && value <= max) {
+            int binIndex;
+            if (logScale) {
+               binIndex = (int) Math.floor(Math.log(value / edges[0]) / range * numBins);
+            } else {
+               binIndex = (int) Math.floor((value - min) / range * numBins);
+            }
+            binIndex = Math.max(0, Math.min(numBins - 1, binIndex));
+            bins[binIndex]++;
+         }
+      }
+      return bins;
+   }
+   
+   private int valueToX(double value, double[] edges, int drawingWidth) {
+      if (logScale) {
+         return GraphUtil.logValueToX(value, edges[0], edges[numBins], drawingWidth, GraphUtil.LEFT_PADDING);
+      }
+      return GraphUtil.valueToX(value, min, max - min, drawingWidth, GraphUtil.LEFT_PADDING);
+   }
+   
    @Override
    public void paintComponent(Graphics g) {
       super.paintComponent(g);
@@ -70,29 +177,18 @@ public class Histogram extends JPanel {
       GraphUtil.drawBackgroundAndTitle(g2d, width, height, title, theme);
       
       // Make Bins
-      double range = max - min;
-      double binWidth = range / numBins;
-      
-      Map<Integer, Integer> bins = new HashMap<>();
-      for (int i = 0; i < numBins; i++) {
-         bins.put(i, 0);
-      }
-      
-      for (Double value : values) {
-         if (value >= min && value <= max) {
-            int binIndex = (int) Math.floor((value - min) / binWidth);
-            if (binIndex == numBins) binIndex--;
-            bins.put(binIndex, bins.get(binIndex) + 1);
-         }
-      }
+      double[] edges = binEdges();
+      long[] bins = countBins(edges);
       
       // Find tallest bin
-      int maxFreq = 0;
-      for (Integer freq : bins.values()) {
-         maxFreq = Math.max(maxFreq, freq);
+      long maxCount = 0;
+      long total = 0;
+      for (long count : bins) {
+         maxCount = Math.max(maxCount, count);
+         total += count;
       }
       
-      maxFreq = (int) (maxFreq * 1.1);
+      int maxFreq = (int) Math.min(Integer.MAX_VALUE, (long) (maxCount * 1.1));
       if (maxFreq == 0) maxFreq = 1;
       
       int drawingWidth = width - GraphUtil.LEFT_PADDING - GraphUtil.PADDING;
@@ -100,16 +196,19 @@ public class Histogram extends JPanel {
       // Draw Axes
       int axisY = height - GraphUtil.BOTTOM_PADDING;
       GraphUtil.drawYAxis(g2d, width, height, maxFreq, GraphUtil.LEFT_PADDING, GraphUtil.BOTTOM_PADDING, GraphUtil.TOP_PADDING, GraphUtil.RIGHT_PADDING, theme, "Frequency");
-      GraphUtil.drawXAxis(g2d, width, height, min, max, axisY, GraphUtil.LEFT_PADDING, GraphUtil.PADDING, theme);
+      if (logScale) {
+         GraphUtil.drawLogXAxis(g2d, width, edges[0], edges[numBins], axisY, GraphUtil.LEFT_PADDING, GraphUtil.PADDING, theme);
+      } else {
+         GraphUtil.drawXAxis(g2d, width, height, min, max, axisY, GraphUtil.LEFT_PADDING, GraphUtil.PADDING, theme);
+      }
       
       // Draw Bins
       for (int i = 0; i < numBins; i++) {
-         double binStart = min + (i * binWidth);
-         int binX = GraphUtil.valueToX(binStart, min, range, drawingWidth, GraphUtil.LEFT_PADDING);
-         int nextX = GraphUtil.valueToX(binStart + binWidth, min, range, drawingWidth, GraphUtil.LEFT_PADDING);
+         int binX = valueToX(edges[i], edges, drawingWidth);
+         int nextX = valueToX(edges[i + 1], edges, drawingWidth);
          int barWidth = nextX - binX;
          
-         int frequency = bins.get(i);
+         int frequency = (int) Math.min(Integer.MAX_VALUE, bins[i]);
          int barHeight = axisY - freqToY(frequency, height, maxFreq);
          
          g2d.setColor(theme[0]);
@@ -120,7 +219,7 @@ public class Histogram extends JPanel {
          // Label each bar
          if (barHeight > 15) {
             g2d.setColor(theme[4]);
-            String freqLabel = Integer.toString(frequency);
+            String freqLabel = Long.toString(bins[i]);
             FontMetrics fm = g2d.getFontMetrics();
             int labelWidth = fm.stringWidth(freqLabel);
             if (labelWidth < barWidth - 4) {
@@ -133,10 +232,32 @@ public class Histogram extends JPanel {
       g2d.setColor(theme[4]);
       g2d.setFont(GraphUtil.ITALIC_FONT);
       g2d.drawString("Bins: " + numBins, GraphUtil.LEFT_PADDING, height - 20);
-      g2d.drawString("Bin width: " + String.format("%.2f", binWidth), GraphUtil.LEFT_PADDING + 100, height - 20);
-      g2d.drawString("Total values: " + values.size(), GraphUtil.LEFT_PADDING + 250, height - 20);
+      if (logScale) {
+         g2d.drawString("Bin ratio: " + String.format("%.3f", edges[1] / edges[0]), GraphUtil.LEFT_PADDING + 100, height - 20);
+      } else {
+         g2d.drawString("Bin width: " + String.format("%.2f", edges[1] - edges[0]), GraphUtil.LEFT_PADDING + 100, height - 20);
+      }
+      g2d.drawString("Total values: " + total, GraphUtil.LEFT_PADDING + 250, height - 20);
       
-      GraphUtil.drawStatistics(g2d, stats, width - GraphUtil.PADDING - 150, GraphUtil.TOP_PADDING, theme);
+      if (stats != null) {
+         GraphUtil.drawStatistics(g2d, stats, width - GraphUtil.PADDING - 150, GraphUtil.TOP_PADDING, theme);
+      } else {
+         drawDistributionStatistics(g2d, width - GraphUtil.PADDING - 150, GraphUtil.TOP_PADDING);
+      }
+   }
+   
+   // Latency-style summary of a LogHistogram, which has no JStatsLib to describe it
+   private void drawDistributionStatistics(Graphics2D g2d, int x, int y) {
+      g2d.setColor(theme[4]);
+      g2d.setFont(GraphUtil.LABEL_FONT);
+      int lineHeight = 20;
+      double[] percentiles = distribution.quantiles(0.5, 0.99, 0.999);
+      g2d.drawString("N = " + distribution.getCount(), x, y);
+      g2d.drawString("Mean: " + String.format("%.3g", distribution.getMean()), x, y + lineHeight);
+      g2d.drawString("p50: " + String.format("%.3g", percentiles[0]), x, y + lineHeight * 2);
+      g2d.drawString("p99: " + String.format("%.3g", percentiles[1]), x, y + lineHeight * 3);
+      g2d.drawString("p99.9: " + String.format("%.3g", percentiles[2]), x, y + lineHeight * 4);
+      g2d.drawString("Max: " + String.format("%.3g", max), x, y + lineHeight * 5);
    }
    
    public void showGraph() {
@@ -146,4 +267,8 @@ public class Histogram extends JPanel {
    public static Histogram createFromStats(JStatsLib stats, int bins, String title, Color[] theme) {
       return new Histogram(stats, bins, title, theme);
    }
+   
+   public static Histogram createFromDistribution(LogHistogram distribution, int bins, String title, Color[] theme) {
+      return new Histogram(distribution, bins, title, theme);
+   }
 }
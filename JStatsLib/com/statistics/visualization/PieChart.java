@@ -9,23 +9,30 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.BasicStroke;
 import java.awt.geom.Arc2D;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.ArrayList;
 
 import com.statistics.JStatsLib;
+import com.statistics.analysis.Summary;
 import com.statistics.utils.Themes;
 
 /**
  * <summary>
- * A pie chart to represent your data
+ * A pie chart to represent your data.
+ * The most frequent values get their own slices and the rest are grouped into one "Other" slice,
+ * so high-cardinality data does not need a full frequency map.
  * </summary>
  */
 
 public class PieChart extends JPanel {
    
+   // Slices beyond this many values are grouped together; more would not fit in the legend
+   private static final int MAX_SLICES = 12;
+   
    private JStatsLib stats;
-   private HashMap<Double, Integer> frequencyMap;
+   private LinkedHashMap<Double, Long> slices;
+   private long otherCount;
    private String title;
    private Color[] theme;
    private int totalCount;
@@ -35,10 +42,14 @@ public class PieChart extends JPanel {
    
    public PieChart(JStatsLib stats, String title, Color[] theme) {
       this.stats = stats;
-      this.frequencyMap = stats.toFrequencyMap();
+      this.slices = stats.topFrequencies(MAX_SLICES);
       this.title = title;
       this.theme = theme;
       this.totalCount = stats.size();
+      this.otherCount = totalCount;
+      for (long count : slices.values()) {
+         otherCount -= count;
+      }
    }
    
    @Override
@@ -69,7 +80,7 @@ public class PieChart extends JPanel {
          return;
       }
       
-      ArrayList<Map.Entry<Double, Integer>> sortedEntries = new ArrayList<>(frequencyMap.entrySet());
+      ArrayList<Map.Entry<Double, Long>> sortedEntries = new ArrayList<>(slices.entrySet());
       sortedEntries.sort(Map.Entry.comparingByKey());
       
       double startAngle = 0;
@@ -78,10 +89,12 @@ public class PieChart extends JPanel {
       int legendTextOffset = 20;
       int colorIndex = 0;
       
-      for (Map.Entry<Double, Integer> entry : sortedEntries) {
-         // Get Slice Info
-         double value = entry.getKey();
-         int count = entry.getValue();
+      for (int slice = 0; slice <= sortedEntries.size(); slice++) {
+         // Get Slice Info; the last slice holds every value without one of its own
+         long count = slice < sortedEntries.size() ? sortedEntries.get(slice).getValue() : otherCount;
+         if (count <= 0) {
+            continue;
+         }
          double percentage = (double) count / totalCount;
          double arcAngle = 360.0 * percentage;
          
@@ -105,7 +118,8 @@ public class PieChart extends JPanel {
          g2d.drawRect(width - legendPadding + padding, legendY, legendSquareSize, legendSquareSize);
          g2d.setColor(theme[4]);
          g2d.setFont(new Font("Arial", Font.PLAIN, 12));
-         String legendText = String.format("%.1f: %d (%.1f%%)", value, count, percentage * 100);
+         String label = slice < sortedEntries.size() ? String.format("%.1f", sortedEntries.get(slice).getKey()) : "Other";
+         String legendText = String.format("%s: %d (%.1f%%)", label, count, percentage * 100);
          g2d.drawString(legendText, width - legendPadding + padding + legendTextOffset, legendY + legendSquareSize - 2);
          
          startAngle += arcAngle;
@@ -119,9 +133,10 @@ public class PieChart extends JPanel {
       
       int statsY = legendY + 50;
       g2d.drawString("Statistics:", width - legendPadding + padding, statsY);
-      g2d.drawString("Mean: " + String.format("%.2f", stats.mean()), width - legendPadding + padding, statsY + 20);
-      g2d.drawString("Median: " + String.format("%.2f", stats.median()), width - legendPadding + padding, statsY + 40);
-      g2d.drawString("StdDev: " + String.format("%.2f", stats.stddev()), width - legendPadding + padding, statsY + 60);
+      Summary summary = stats.summary();
+      g2d.drawString("Mean: " + String.format("%.2f", summary.getMean()), width - legendPadding + padding, statsY + 20);
+      g2d.drawString("Median: " + String.format("%.2f", summary.getMedian()), width - legendPadding + padding, statsY + 40);
+      g2d.drawString("StdDev: " + String.format("%.2f", summary.getStddev()), width - legendPadding + padding, statsY + 60);
    }
    
    public void showGraph() {
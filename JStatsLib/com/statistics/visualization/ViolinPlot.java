@@ -6,10 +6,10 @@ import java.awt.Graphics2D;
 import java.awt.Color;
 import java.awt.BasicStroke;
 import java.awt.geom.Path2D;
-import java.util.ArrayList;
-import java.util.Collections;
 
 import com.statistics.JStatsLib;
+import com.statistics.analysis.Summary;
+import com.statistics.utils.Kernels;
 
 /**
  * <summary>
@@ -22,7 +22,7 @@ public class ViolinPlot extends JPanel {
    private double median;
    private double iqr;
    private double[] percentiles; // [Q1, Q3]
-   private ArrayList<Double> values;
+   private double[] sample; // Primitive copy of the values for the density kernel and the data points
    private double min;
    private double max;
    private String title;
@@ -33,19 +33,20 @@ public class ViolinPlot extends JPanel {
    
    public ViolinPlot(JStatsLib stats, String title, Color[] theme) {
       this.stats = stats;
-      this.values = stats.toList();
-      this.median = stats.median();
-      this.iqr = stats.iqr();
-      this.percentiles = stats.findQuarterPercentiles();
-      this.min = stats.min();
-      this.max = stats.max();
+      this.sample = stats.toSequence();
+      Summary summary = stats.summary();
+      this.median = summary.getMedian();
+      this.iqr = summary.getIqr();
+      this.percentiles = summary.getQuarterPercentiles();
+      this.min = summary.getMin();
+      this.max = summary.getMax();
       this.title = title;
       this.theme = theme;
       
       // Calculate bandwidth based on Scott's rule
       // modification of Silverman's rule
-      double stdDev = stats.stddev();
-      int n = values.size();
+      double stdDev = summary.getStddev();
+      int n = sample.length;
       this.bandwidth = 1.06 * stdDev * Math.pow(n, -0.2);
       
       // Ensure bandwidth is not too small
@@ -92,16 +93,13 @@ public class ViolinPlot extends JPanel {
     * @return Array of [x, y] points representing the density curve
     */
    private double[][] calculateKDE() {
-      // Sort values for more efficient calculation
-      Collections.sort(values);
-      
       // Prepare the grid of points for KDE calculation
       double range = max - min;
       double padding = range * 0.2; // Add padding to avoid cutoffs
       
       // If range very small, add more padding
       if (range < 0.001) {
-         padding = Math.max(1.0, values.get(0) * 0.5);
+         padding = Math.max(1.0, min * 0.5);
       }
       
       double realMin = min - padding;
@@ -117,15 +115,10 @@ public class ViolinPlot extends JPanel {
          x[i] = realMin + (i * step);
       }
       
-      // Calculate density for each x value
+      // Calculate density for each x value with the Gaussian kernel
+      double normalization = sample.length * bandwidth * Math.sqrt(2 * Math.PI);
       for (int i = 0; i < kernelPoints; i++) {
-         double sum = 0;
-         for (Double value : values) {
-            // Gaussian kernel function
-            double z = (x[i] - value) / bandwidth;
-            sum += Math.exp(-0.5 * z * z) / (bandwidth * Math.sqrt(2 * Math.PI));
-         }
-         density[i] = sum / values.size();
+         density[i] = Kernels.gaussianKernelSum(sample, 0, sample.length, x[i], bandwidth) / normalization;
       }
       
       // Handle case when all density values are the same
@@ -243,7 +236,7 @@ public class ViolinPlot extends JPanel {
       // Draw data points as small circles
       g2d.setColor(new Color(0, 0, 0, 150));
       int dotSize = 4;
-      for (Double value : values) {
+      for (double value : sample) {
          int xPos = GraphUtil.valueToX(value, min, range, drawingWidth, GraphUtil.LEFT_PADDING);
          // Jitter the y position to avoid overlap
          int yOffset = (int)(Math.random() * boxHeight) - boxHeight/2;